@@ -0,0 +1,66 @@
+package com.lobanmatin.budget_api.benchmark;
+
+import com.lobanmatin.budget_api.SavrApiApplication;
+import com.lobanmatin.budget_api.model.Role;
+import com.lobanmatin.budget_api.model.User;
+import com.lobanmatin.budget_api.repository.UserRepository;
+import com.lobanmatin.budget_api.security.CustomUserDetails;
+import com.lobanmatin.budget_api.security.JwtUtil;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Boots the full application against an in-process H2 database so benchmarks exercise the real beans.
+ */
+final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(String... extraArgs) {
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+
+        String[] args = {
+                "--spring.datasource.url=jdbc:h2:mem:savr-bench;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.jpa.show-sql=false",
+                "--spring.flyway.enabled=false",
+                "--jwt.secret=" + Base64.getEncoder().encodeToString(secret),
+                "--jwt.expiration=3600000",
+                "--server.port=0",
+                "--management.server.port=-1",
+                // Benchmarks drive one user far past any per user budget, a throttled 429 would be measured instead
+                "--rate-limit.enabled=false",
+                "--logging.level.root=WARN"
+        };
+        String[] allArgs = new String[args.length + extraArgs.length];
+        System.arraycopy(args, 0, allArgs, 0, args.length);
+        System.arraycopy(extraArgs, 0, allArgs, args.length, extraArgs.length);
+
+        return new SpringApplicationBuilder(SavrApiApplication.class).run(allArgs);
+    }
+
+    // Saves a user and issues a token with the same claims as AuthController.login
+    static String issueToken(ConfigurableApplicationContext context, String email) {
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        User user = userRepository.findByEmail(email)
+                .orElseGet(() -> userRepository.save(new User(email, "unused", Role.USER)));
+        CustomUserDetails userDetails = new CustomUserDetails(user);
+
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("userId", userDetails.getId());
+        claims.put("role", userDetails.getRole());
+
+        return context.getBean(JwtUtil.class).generateToken(claims, userDetails);
+    }
+}
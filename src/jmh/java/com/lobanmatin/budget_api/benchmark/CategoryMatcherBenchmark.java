@@ -0,0 +1,80 @@
+package com.lobanmatin.budget_api.benchmark;
+
+import com.lobanmatin.budget_api.model.ExpenseCategory;
+import com.lobanmatin.budget_api.util.KeywordMatcher;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Categorising a batch of bank export titles with the compiled keyword matcher, against checking every rule
+ * with indexOf on the lower cased title. The naive scan grows with the number of rules, the matcher does not.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CategoryMatcherBenchmark {
+
+    private static final int TITLES = 1000;
+    private static final ExpenseCategory[] CATEGORIES = {
+            ExpenseCategory.FOOD, ExpenseCategory.TRANSPORT, ExpenseCategory.UTILITIES,
+            ExpenseCategory.ENTERTAINMENT, ExpenseCategory.HEALTH
+    };
+
+    @Param({"30", "500"})
+    public int rules;
+
+    private String[] keywords;
+    private ExpenseCategory[] categories;
+    private KeywordMatcher<ExpenseCategory> matcher;
+    private String[] titles;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keywords = new String[rules];
+        categories = new ExpenseCategory[rules];
+        KeywordMatcher.Builder<ExpenseCategory> builder = KeywordMatcher.builder();
+        for (int i = 0; i < rules; i++) {
+            keywords[i] = "merchant" + i;
+            categories[i] = CATEGORIES[i % CATEGORIES.length];
+            builder.add(keywords[i], 0, categories[i]);
+        }
+        matcher = builder.build();
+
+        // Half of the titles match a rule, like an import where most regular merchants have one
+        titles = new String[TITLES];
+        for (int i = 0; i < TITLES; i++) {
+            String merchant = i % 2 == 0 ? "MERCHANT" + (i % rules) : "UNKNOWN SHOP " + i;
+            titles[i] = "CARD PURCHASE " + merchant + " SYDNEY AU 4821 VALUE DATE 01/07/2025";
+        }
+    }
+
+    @Benchmark
+    public void keywordMatcher(Blackhole blackhole) {
+        for (String title : titles) {
+            blackhole.consume(matcher.find(title));
+        }
+    }
+
+    // Substring check per rule, without the whole word check the matcher also does
+    @Benchmark
+    public void indexOfPerRule(Blackhole blackhole) {
+        for (String title : titles) {
+            String lower = title.toLowerCase(Locale.ROOT);
+            ExpenseCategory found = null;
+            int foundLength = 0;
+            for (int i = 0; i < keywords.length; i++) {
+                if (keywords[i].length() > foundLength && lower.contains(keywords[i])) {
+                    found = categories[i];
+                    foundLength = keywords[i].length();
+                }
+            }
+            blackhole.consume(found);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.lobanmatin.budget_api.benchmark;
+
+import com.lobanmatin.budget_api.dto.ImportReport;
+import com.lobanmatin.budget_api.repository.CategoryRuleRepository;
+import com.lobanmatin.budget_api.repository.ExpenseJdbcRepository;
+import com.lobanmatin.budget_api.repository.ExpenseRepository;
+import com.lobanmatin.budget_api.repository.UserRepository;
+import com.lobanmatin.budget_api.service.CategoryRuleService;
+import com.lobanmatin.budget_api.service.DataVersionService;
+import com.lobanmatin.budget_api.service.ExpensePurgeService;
+import com.lobanmatin.budget_api.service.ExpenseService;
+import com.lobanmatin.budget_api.service.SpendingRollupService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * CSV parsing and dedupe in ExpenseService.uploadExpensesFromCSV. The repositories are stubbed
+ * so the score covers the per-line work, not database round trips.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CsvImportBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int rows;
+
+    private ExpenseService expenseService;
+    private MockMultipartFile file;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ExpenseRepository expenseRepository = mock(ExpenseRepository.class);
+        ExpenseJdbcRepository expenseJdbcRepository = mock(ExpenseJdbcRepository.class);
+
+        expenseService = new ExpenseService(
+                expenseRepository,
+                expenseJdbcRepository,
+                mock(SpendingRollupService.class),
+                mock(ExpensePurgeService.class),
+                mock(DataVersionService.class),
+                new CategoryRuleService(mock(CategoryRuleRepository.class), mock(UserRepository.class),
+                        new TransactionTemplate(mock(PlatformTransactionManager.class)), 500, 100, 60000),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                500,
+                50000
+        );
+        file = new MockMultipartFile("file", "expenses.csv", "text/csv", csv(rows));
+    }
+
+    @Benchmark
+    public ImportReport uploadExpensesFromCSV() {
+        return expenseService.uploadExpensesFromCSV(1L, file);
+    }
+
+    // Bank export shaped rows: date, signed amount, description
+    static byte[] csv(int rows) {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("d/MM/yyyy");
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        StringBuilder csv = new StringBuilder("Date,Amount,Description\n");
+        for (int i = 0; i < rows; i++) {
+            csv.append(start.plusDays(i % 365).format(formatter))
+                    .append(",-").append(i % 200).append('.').append(i % 100 < 10 ? "0" : "").append(i % 100)
+                    .append(",CARD PURCHASE MERCHANT ").append(i)
+                    .append('\n');
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
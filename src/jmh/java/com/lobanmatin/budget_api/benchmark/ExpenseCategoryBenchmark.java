@@ -0,0 +1,26 @@
+package com.lobanmatin.budget_api.benchmark;
+
+import com.lobanmatin.budget_api.model.ExpenseCategory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ExpenseCategory.fromString over the spellings seen in uploads, from an exact display name to an unknown value.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExpenseCategoryBenchmark {
+
+    @Param({"Food", " entertainment ", "N/A", "Groceries", ""})
+    public String value;
+
+    @Benchmark
+    public ExpenseCategory fromString() {
+        return ExpenseCategory.fromString(value);
+    }
+}
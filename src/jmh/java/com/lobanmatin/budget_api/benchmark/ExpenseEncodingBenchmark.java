@@ -0,0 +1,81 @@
+package com.lobanmatin.budget_api.benchmark;
+
+import com.lobanmatin.budget_api.config.ExpenseProtobufHttpMessageConverter;
+import com.lobanmatin.budget_api.dto.ExpensePage;
+import com.lobanmatin.budget_api.dto.ExpenseResponse;
+import com.lobanmatin.budget_api.model.ExpenseCategory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A GET /expenses page written by each of the negotiated response converters. The encoded size of every
+ * format is printed once per trial, next to the timings.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExpenseEncodingBenchmark {
+
+    @Param({"10000"})
+    public int rows;
+
+    @Param({"JSON", "SMILE", "CBOR", "PROTOBUF"})
+    public String format;
+
+    private HttpMessageConverter<Object> converter;
+    private MediaType mediaType;
+    private ExpensePage page;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        // Built like the converters of WebConfig, from the builder Spring Boot configures
+        HttpMessageConverter<?> selected = switch (format) {
+            case "JSON" -> new MappingJackson2HttpMessageConverter(Jackson2ObjectMapperBuilder.json().build());
+            case "SMILE" -> new MappingJackson2SmileHttpMessageConverter(Jackson2ObjectMapperBuilder.smile().build());
+            case "CBOR" -> new MappingJackson2CborHttpMessageConverter(Jackson2ObjectMapperBuilder.cbor().build());
+            case "PROTOBUF" -> new ExpenseProtobufHttpMessageConverter();
+            default -> throw new IllegalArgumentException("Unknown format " + format);
+        };
+        converter = (HttpMessageConverter<Object>) selected;
+        mediaType = converter.getSupportedMediaTypes().get(0);
+
+        ExpenseCategory[] categories = ExpenseCategory.values();
+        LocalDate start = LocalDate.of(2024, 1, 1);
+
+        List<ExpenseResponse> expenses = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            expenses.add(new ExpenseResponse(
+                    (long) i,
+                    "CARD PURCHASE MERCHANT " + i,
+                    BigDecimal.valueOf(i % 20000, 2),
+                    categories[i % categories.length],
+                    start.plusDays(i % 365)));
+        }
+        page = new ExpensePage(expenses, "MjAyNS0wNy0wMToxMg");
+
+        System.out.printf("%n%s (%s): %,d bytes for %,d expenses%n", format, mediaType, writePage().length, rows);
+    }
+
+    @Benchmark
+    public byte[] writePage() throws Exception {
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+        converter.write(page, mediaType, output);
+        return output.getBodyAsBytes();
+    }
+}
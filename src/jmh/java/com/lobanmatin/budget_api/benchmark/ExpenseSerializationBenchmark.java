@@ -0,0 +1,55 @@
+package com.lobanmatin.budget_api.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lobanmatin.budget_api.dto.ExpenseResponse;
+import com.lobanmatin.budget_api.model.ExpenseCategory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of the expense lists returned by GET /expenses.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExpenseSerializationBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int rows;
+
+    private ObjectMapper objectMapper;
+    private List<ExpenseResponse> expenses;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Same builder and defaults Spring Boot uses for its ObjectMapper bean
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        ExpenseCategory[] categories = ExpenseCategory.values();
+        LocalDate start = LocalDate.of(2024, 1, 1);
+
+        expenses = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            expenses.add(new ExpenseResponse(
+                    (long) i,
+                    "CARD PURCHASE MERCHANT " + i,
+                    BigDecimal.valueOf(i % 20000, 2),
+                    categories[i % categories.length],
+                    start.plusDays(i % 365)));
+        }
+    }
+
+    @Benchmark
+    public byte[] writeExpenses() throws Exception {
+        return objectMapper.writeValueAsBytes(expenses);
+    }
+}
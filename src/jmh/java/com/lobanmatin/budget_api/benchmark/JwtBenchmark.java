@@ -0,0 +1,48 @@
+package com.lobanmatin.budget_api.benchmark;
+
+import com.lobanmatin.budget_api.security.JwtUtil;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token verification cost: a full signature check against a cache hit in validateAndGetClaims.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private JwtUtil jwtUtil;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        jwtUtil = context.getBean(JwtUtil.class);
+        token = BenchmarkApplication.issueToken(context, "jwt-bench@example.com");
+        jwtUtil.validateAndGetClaims(token);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Claims extractClaims() {
+        return jwtUtil.extractClaims(token);
+    }
+
+    @Benchmark
+    public Optional<Claims> validateAndGetClaims() {
+        return jwtUtil.validateAndGetClaims(token);
+    }
+}
@@ -0,0 +1,70 @@
+package com.lobanmatin.budget_api.benchmark;
+
+import com.lobanmatin.budget_api.security.JwtAuthenticationFilter;
+import com.lobanmatin.budget_api.security.JwtUtil;
+import com.lobanmatin.budget_api.service.CustomUserDetailsService;
+import com.lobanmatin.budget_api.service.TokenBlacklistService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One authenticated request through JwtAuthenticationFilter, building the principal from the
+ * token claims or reloading the user from H2 as jwt.load-user-from-db=true does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtFilterBenchmark {
+
+    @Param({"claims", "database"})
+    public String principalSource;
+
+    private ConfigurableApplicationContext context;
+    private JwtAuthenticationFilter filter;
+    private String authorization;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        filter = new JwtAuthenticationFilter(
+                context.getBean(JwtUtil.class),
+                context.getBean(CustomUserDetailsService.class),
+                context.getBean(TokenBlacklistService.class),
+                context.getBean(MeterRegistry.class),
+                principalSource.equals("database")
+        );
+        authorization = "Bearer " + BenchmarkApplication.issueToken(context, "filter-bench@example.com");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int doFilter() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/expenses");
+        request.setServletPath("/expenses");
+        request.addHeader("Authorization", authorization);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        try {
+            filter.doFilter(request, response, new MockFilterChain());
+            return response.getStatus();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
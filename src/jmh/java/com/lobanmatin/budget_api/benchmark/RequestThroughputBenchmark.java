@@ -0,0 +1,93 @@
+package com.lobanmatin.budget_api.benchmark;
+
+import com.lobanmatin.budget_api.model.Expense;
+import com.lobanmatin.budget_api.model.ExpenseCategory;
+import com.lobanmatin.budget_api.model.User;
+import com.lobanmatin.budget_api.repository.ExpenseRepository;
+import com.lobanmatin.budget_api.repository.UserRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load comparison of platform and virtual request threads: 200 concurrent clients call GET /expenses,
+ * each request reloading the user and reading a page of expenses over JDBC. Tomcat is capped at
+ * 50 platform threads to stand in for a pod's thread budget. Virtual threads only take effect when
+ * the benchmarks run on Java 21, e.g. mvn -Pjmh,java21 test-compile exec:exec.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+// Throughput keeps climbing through the first warmups, and forks average out JIT and GC luck between runs
+@Warmup(iterations = 5, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(3)
+@Threads(200)
+@State(Scope.Benchmark)
+public class RequestThroughputBenchmark {
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private HttpRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = BenchmarkApplication.start(
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                "--server.tomcat.threads.max=50",
+                "--jwt.load-user-from-db=true"
+        );
+        String token = BenchmarkApplication.issueToken(context, "load-bench@example.com");
+        seedExpenses(context.getBean(UserRepository.class).findByEmail("load-bench@example.com").orElseThrow());
+
+        String port = context.getEnvironment().getProperty("local.server.port");
+        client = HttpClient.newHttpClient();
+        request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/expenses?limit=50"))
+                .header("Authorization", "Bearer " + token)
+                .GET()
+                .build();
+
+        getExpenses();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    // Fails the run on any other status, so error responses are never counted as throughput
+    @Benchmark
+    public int getExpenses() throws Exception {
+        int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        if (status != 200) {
+            throw new IllegalStateException("GET /expenses returned " + status);
+        }
+        return status;
+    }
+
+    private void seedExpenses(User user) {
+        List<Expense> expenses = new ArrayList<>();
+        LocalDate start = LocalDate.of(2025, 1, 1);
+        for (int i = 0; i < 500; i++) {
+            expenses.add(Expense.builder()
+                    .title("MERCHANT " + i)
+                    .amount(BigDecimal.valueOf(i % 20000, 2))
+                    .category(ExpenseCategory.OTHER)
+                    .date(start.plusDays(i % 180))
+                    .user(user)
+                    .build());
+        }
+        context.getBean(ExpenseRepository.class).saveAll(expenses);
+    }
+}
@@ -0,0 +1,149 @@
+package com.lobanmatin.budget_api.config;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import com.lobanmatin.budget_api.dto.ExpensePage;
+import com.lobanmatin.budget_api.dto.ExpenseResponse;
+import com.lobanmatin.budget_api.model.Budget;
+import com.lobanmatin.budget_api.model.ExpenseCategory;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Writes expense pages and budgets in the protobuf wire format described by {@code proto/budget_api.proto}.
+ * The messages are encoded by hand with {@link CodedOutputStream}, which keeps protoc out of the build and
+ * writes the response DTOs without first copying them into generated message objects. Write only.
+ */
+public class ExpenseProtobufHttpMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+    public static final MediaType PROTOBUF = new MediaType("application", "x-protobuf");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public ExpenseProtobufHttpMessageConverter() {
+        super(PROTOBUF, new MediaType("application", "protobuf"));
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return ExpensePage.class == clazz || Budget.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, @Nullable MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Protobuf request bodies are not supported", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(Object value, HttpOutputMessage outputMessage) throws IOException {
+        CodedOutputStream output = CodedOutputStream.newInstance(outputMessage.getBody(), BUFFER_SIZE);
+        if (value instanceof ExpensePage page) {
+            writeExpensePage(page, output);
+        } else {
+            writeBudget((Budget) value, output);
+        }
+        output.flush();
+    }
+
+    private static void writeExpensePage(ExpensePage page, CodedOutputStream output) throws IOException {
+        if (page.getItems() != null) {
+            for (ExpenseResponse expense : page.getItems()) {
+                output.writeTag(1, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+                output.writeUInt32NoTag(expenseSize(expense));
+                writeExpense(expense, output);
+            }
+        }
+        if (page.getNextCursor() != null) {
+            output.writeString(2, page.getNextCursor());
+        }
+    }
+
+    private static int expenseSize(ExpenseResponse expense) {
+        int size = 0;
+        if (expense.id() != null) {
+            size += CodedOutputStream.computeInt64Size(1, expense.id());
+        }
+        if (expense.title() != null) {
+            size += CodedOutputStream.computeStringSize(2, expense.title());
+        }
+        if (expense.amount() != null) {
+            size += CodedOutputStream.computeSInt64Size(3, cents(expense.amount()));
+        }
+        if (expense.category() != null) {
+            size += CodedOutputStream.computeEnumSize(4, enumNumber(expense.category()));
+        }
+        if (expense.date() != null) {
+            size += CodedOutputStream.computeSInt32Size(5, (int) expense.date().toEpochDay());
+        }
+        return size;
+    }
+
+    // Field for field the same checks as expenseSize, the length prefix has to match what is written
+    private static void writeExpense(ExpenseResponse expense, CodedOutputStream output) throws IOException {
+        if (expense.id() != null) {
+            output.writeInt64(1, expense.id());
+        }
+        if (expense.title() != null) {
+            output.writeString(2, expense.title());
+        }
+        if (expense.amount() != null) {
+            output.writeSInt64(3, cents(expense.amount()));
+        }
+        if (expense.category() != null) {
+            output.writeEnum(4, enumNumber(expense.category()));
+        }
+        if (expense.date() != null) {
+            output.writeSInt32(5, (int) expense.date().toEpochDay());
+        }
+    }
+
+    private static void writeBudget(Budget budget, CodedOutputStream output) throws IOException {
+        if (budget.getId() != null) {
+            output.writeInt64(1, budget.getId());
+        }
+        if (budget.getTotalLimit() != null) {
+            output.writeSInt64(2, cents(budget.getTotalLimit()));
+        }
+        if (budget.getTotalIncome() != null) {
+            output.writeSInt64(3, cents(budget.getTotalIncome()));
+        }
+        if (budget.getCategoryLimits() != null) {
+            for (Map.Entry<ExpenseCategory, BigDecimal> limit : budget.getCategoryLimits().entrySet()) {
+                if (limit.getValue() == null) {
+                    continue;
+                }
+                // Map entries are encoded as messages with the key in field 1 and the value in field 2
+                String key = limit.getKey().name();
+                long value = cents(limit.getValue());
+                output.writeTag(4, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+                output.writeUInt32NoTag(CodedOutputStream.computeStringSize(1, key)
+                        + CodedOutputStream.computeSInt64Size(2, value));
+                output.writeString(1, key);
+                output.writeSInt64(2, value);
+            }
+        }
+    }
+
+    // Amounts are stored with two decimal places, so they convert to cents exactly
+    private static long cents(BigDecimal amount) {
+        return amount.movePointRight(2).longValueExact();
+    }
+
+    // The .proto enum lists the categories in declaration order after the UNSPECIFIED zero value
+    private static int enumNumber(ExpenseCategory category) {
+        return category.ordinal() + 1;
+    }
+}
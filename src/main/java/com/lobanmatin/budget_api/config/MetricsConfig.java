@@ -0,0 +1,59 @@
+package com.lobanmatin.budget_api.config;
+
+import com.lobanmatin.budget_api.security.JwtUtil;
+import com.lobanmatin.budget_api.service.TokenBlacklistService;
+import com.lobanmatin.budget_api.util.QueryCounter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public QueryCounter queryCounter() {
+        return new QueryCounter();
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer queryCounterCustomizer(QueryCounter queryCounter) {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, queryCounter);
+    }
+
+    @Bean
+    public FilterRegistrationBean<QueryCountFilter> queryCountFilter(QueryCounter queryCounter, MeterRegistry meterRegistry) {
+        FilterRegistrationBean<QueryCountFilter> registration =
+                new FilterRegistrationBean<>(new QueryCountFilter(queryCounter, meterRegistry));
+        // Outermost, so the user lookup in the security filters is counted too
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    // The JWT cache and blacklist are read when scraped, the blacklist count may query the shared store
+    @Bean
+    public MeterBinder jwtMetrics(JwtUtil jwtUtil, TokenBlacklistService tokenBlacklistService) {
+        return registry -> {
+            FunctionCounter.builder("jwt.cache.requests", jwtUtil, JwtUtil::getCacheHits)
+                    .description("Token verifications answered by the verified token cache")
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("jwt.cache.requests", jwtUtil, JwtUtil::getCacheMisses)
+                    .description("Token verifications answered by the verified token cache")
+                    .tag("result", "miss")
+                    .register(registry);
+            Gauge.builder("jwt.cache.size", jwtUtil, JwtUtil::getCacheSize)
+                    .description("Verified tokens currently cached")
+                    .register(registry);
+            Gauge.builder("jwt.blacklist.size", tokenBlacklistService, TokenBlacklistService::size)
+                    .description("Logged out tokens that have not expired yet")
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,38 @@
+package com.lobanmatin.budget_api.config;
+
+import com.lobanmatin.budget_api.util.QueryCounter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Records how many Hibernate statements each request issued, JdbcTemplate batches are not included
+public class QueryCountFilter extends OncePerRequestFilter {
+
+    private final QueryCounter queryCounter;
+    private final DistributionSummary queriesPerRequest;
+
+    public QueryCountFilter(QueryCounter queryCounter, MeterRegistry meterRegistry) {
+        this.queryCounter = queryCounter;
+        this.queriesPerRequest = DistributionSummary.builder("hibernate.queries.per.request")
+                .description("SQL statements prepared by Hibernate while handling one request")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        queryCounter.start();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            queriesPerRequest.record(queryCounter.stop());
+        }
+    }
+}
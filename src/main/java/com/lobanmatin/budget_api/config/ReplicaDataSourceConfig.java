@@ -0,0 +1,99 @@
+package com.lobanmatin.budget_api.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.JpaTransactionManager;
+
+import javax.sql.DataSource;
+
+/**
+ * Sends read-only transactions to a replica pool and everything else to the primary. Connections are only fetched
+ * when the first statement runs, by then the transaction has marked them read-only, so the choice needs no
+ * request state. Replaces the auto-configured data source while {@code datasource.replica.enabled} is true.
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.replica.enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    // Same driver and, unless given, the same credentials as the primary
+    @Bean
+    @ConfigurationProperties("datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(DataSourceProperties properties,
+                                              @Value("${datasource.replica.url}") String url,
+                                              @Value("${datasource.replica.username:${spring.datasource.username}}") String username,
+                                              @Value("${datasource.replica.password:${spring.datasource.password}}") String password) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        dataSource.setPoolName("replica");
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(HikariDataSource replicaDataSource,
+                                               @Value("${datasource.replica.lag-query}") String lagQuery,
+                                               @Value("${datasource.replica.max-lag-ms:5000}") long maxLagMs) {
+        return new ReplicaLagMonitor(replicaDataSource, lagQuery, maxLagMs);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, HikariDataSource replicaDataSource,
+                                 ReplicaLagMonitor replicaLagMonitor) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(
+                new ReplicaFallbackDataSource(replicaDataSource, primaryDataSource, replicaLagMonitor));
+        return dataSource;
+    }
+
+    @Bean
+    public TransactionManagerCustomizer<JpaTransactionManager> replicaJpaDialectCustomizer() {
+        return transactionManager -> transactionManager.setJpaDialect(new ReplicaJpaDialect());
+    }
+
+    // Pool metrics of both pools come from Hikari, tagged pool=primary and pool=replica
+    @Bean
+    public MeterBinder replicaMetrics(ReplicaLagMonitor replicaLagMonitor) {
+        return registry -> {
+            Gauge.builder("datasource.replica.lag", replicaLagMonitor, ReplicaLagMonitor::getLagSeconds)
+                    .description("Replication lag measured on the replica, NaN while it cannot be queried")
+                    .baseUnit("seconds")
+                    .register(registry);
+            Gauge.builder("datasource.replica.usable", replicaLagMonitor, monitor -> monitor.isReplicaUsable() ? 1 : 0)
+                    .description("1 while read-only transactions are sent to the replica, 0 while they fall back to the primary")
+                    .register(registry);
+            FunctionCounter.builder("datasource.read.connections", replicaLagMonitor, ReplicaLagMonitor::getReplicaConnections)
+                    .description("Connections opened for read-only transactions")
+                    .tag("pool", "replica")
+                    .register(registry);
+            FunctionCounter.builder("datasource.read.connections", replicaLagMonitor, ReplicaLagMonitor::getPrimaryConnections)
+                    .description("Connections opened for read-only transactions")
+                    .tag("pool", "primary")
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,29 @@
+package com.lobanmatin.budget_api.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Source of read-only connections: the replica while it is caught up, the primary otherwise.
+ */
+public class ReplicaFallbackDataSource extends AbstractRoutingDataSource {
+
+    private static final String REPLICA = "replica";
+    private static final String PRIMARY = "primary";
+
+    private final ReplicaLagMonitor lagMonitor;
+
+    public ReplicaFallbackDataSource(DataSource replica, DataSource primary, ReplicaLagMonitor lagMonitor) {
+        this.lagMonitor = lagMonitor;
+        setTargetDataSources(Map.of(REPLICA, replica, PRIMARY, primary));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return lagMonitor.routeToReplica() ? REPLICA : PRIMARY;
+    }
+}
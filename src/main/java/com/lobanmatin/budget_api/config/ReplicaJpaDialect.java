@@ -0,0 +1,45 @@
+package com.lobanmatin.budget_api.config;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.lang.Nullable;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.sql.SQLException;
+
+/**
+ * Keeps read-only transactions from filling the second level cache. They may read a lagging replica, and a stale
+ * row put into the cache would be served from there long after the replica has caught up.
+ */
+public class ReplicaJpaDialect extends HibernateJpaDialect {
+
+    private record ReadOnlyTransactionData(@Nullable Object delegate, Session session, CacheMode previousCacheMode) {
+    }
+
+    @Override
+    public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition)
+            throws SQLException {
+        Object transactionData = super.beginTransaction(entityManager, definition);
+        if (!definition.isReadOnly()) {
+            return transactionData;
+        }
+
+        // Cached entries are still read, only puts after a load are skipped
+        Session session = entityManager.unwrap(Session.class);
+        CacheMode previousCacheMode = session.getCacheMode();
+        session.setCacheMode(CacheMode.GET);
+        return new ReadOnlyTransactionData(transactionData, session, previousCacheMode);
+    }
+
+    @Override
+    public void cleanupTransaction(@Nullable Object transactionData) {
+        if (transactionData instanceof ReadOnlyTransactionData readOnly) {
+            readOnly.session().setCacheMode(readOnly.previousCacheMode());
+            super.cleanupTransaction(readOnly.delegate());
+        } else {
+            super.cleanupTransaction(transactionData);
+        }
+    }
+}
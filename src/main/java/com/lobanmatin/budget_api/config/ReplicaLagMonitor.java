@@ -0,0 +1,72 @@
+package com.lobanmatin.budget_api.config;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks how far the read replica is behind the primary. Read-only connections fall back to the primary while the
+ * lag is above the limit or the replica cannot be queried, and until the first check has succeeded.
+ */
+public class ReplicaLagMonitor {
+
+    private final JdbcTemplate replica;
+    private final String lagQuery;
+    private final double maxLagSeconds;
+
+    private volatile double lagSeconds = Double.NaN;
+    private volatile boolean replicaUsable;
+
+    private final LongAdder replicaConnections = new LongAdder();
+    private final LongAdder primaryConnections = new LongAdder();
+
+    public ReplicaLagMonitor(DataSource replica, String lagQuery, long maxLagMs) {
+        this.replica = new JdbcTemplate(replica);
+        this.lagQuery = lagQuery;
+        this.maxLagSeconds = maxLagMs / 1000.0;
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.replica.lag-check-interval-ms:1000}")
+    public void check() {
+        try {
+            Double lag = replica.queryForObject(lagQuery, Double.class);
+            lagSeconds = lag != null ? lag : 0;
+            replicaUsable = lagSeconds <= maxLagSeconds;
+        } catch (DataAccessException e) {
+            // Unreachable or not a replica at all, reads stay on the primary until it answers again
+            lagSeconds = Double.NaN;
+            replicaUsable = false;
+        }
+    }
+
+    /**
+     * Decides where the next read-only connection comes from and counts the decision.
+     */
+    public boolean routeToReplica() {
+        if (replicaUsable) {
+            replicaConnections.increment();
+            return true;
+        }
+        primaryConnections.increment();
+        return false;
+    }
+
+    public boolean isReplicaUsable() {
+        return replicaUsable;
+    }
+
+    public double getLagSeconds() {
+        return lagSeconds;
+    }
+
+    public long getReplicaConnections() {
+        return replicaConnections.sum();
+    }
+
+    public long getPrimaryConnections() {
+        return primaryConnections.sum();
+    }
+}
@@ -1,15 +1,20 @@
 package com.lobanmatin.budget_api.config;
 
+import com.lobanmatin.budget_api.security.BoundedPasswordEncoder;
 import com.lobanmatin.budget_api.security.JwtAuthenticationFilter;
 import com.lobanmatin.budget_api.security.DelegatingAuthenticationEntryPoint;
+import com.lobanmatin.budget_api.security.RateLimitFilter;
 import com.lobanmatin.budget_api.service.CustomUserDetailsService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.*;
 import org.springframework.security.authentication.*;
 import org.springframework.security.config.annotation.authentication.configuration.*;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.*;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
@@ -19,11 +24,14 @@ public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtFilter;
     private final DelegatingAuthenticationEntryPoint authenticationEntryPoint;
+    private final RateLimitFilter rateLimitFilter;
 
     public SecurityConfig(JwtAuthenticationFilter jwtFilter,
-                          DelegatingAuthenticationEntryPoint authenticationEntryPoint) {
+                          DelegatingAuthenticationEntryPoint authenticationEntryPoint,
+                          RateLimitFilter rateLimitFilter) {
         this.jwtFilter = jwtFilter;
         this.authenticationEntryPoint = authenticationEntryPoint;
+        this.rateLimitFilter = rateLimitFilter;
     }
 
     @Bean
@@ -31,9 +39,14 @@ public class SecurityConfig {
         return config.getAuthenticationManager();
     }
 
+    // Hashing runs on its own pool so logins cannot use more than the given threads, shut down with the context
     @Bean
-    public BCryptPasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${password.bcrypt.cost:10}") int cost,
+                                           @Value("${password.hashing.threads:0}") int threads,
+                                           @Value("${password.hashing.queue-capacity:64}") int queueCapacity,
+                                           MeterRegistry meterRegistry) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return new BoundedPasswordEncoder(cost, poolSize, queueCapacity, meterRegistry);
     }
 
     @Bean
@@ -41,6 +54,11 @@ public class SecurityConfig {
         return http
                 .csrf(csrf -> csrf.disable())
                 .authorizeHttpRequests(auth -> auth
+                        // Async dispatches complete a request that was already authorized, e.g. a streamed export
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+                        // Error dispatches only render the status of a request that was already checked, so e.g. a 406
+                        // for an Accept type the endpoint cannot produce is not turned into a 401
+                        .dispatcherTypeMatchers(DispatcherType.ERROR).permitAll()
                         .requestMatchers(
                                 "/auth/**",
                                 "/v3/api-docs",
@@ -49,7 +67,9 @@ public class SecurityConfig {
                                 "/swagger-ui/**",
                                 "/swagger-resources/**",
                                 "/configuration/**",
-                                "/webjars/**"
+                                "/webjars/**",
+                                // Only reachable on the management port
+                                "/actuator/**"
                         ).permitAll()
                         .anyRequest().authenticated()
                 )
@@ -58,6 +78,8 @@ public class SecurityConfig {
                 )
                 .sessionManagement(sess -> sess.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class)
+                // After the JWT filter, so authenticated requests are limited per user rather than per IP
+                .addFilterAfter(rateLimitFilter, JwtAuthenticationFilter.class)
                 .build();
     }
 }
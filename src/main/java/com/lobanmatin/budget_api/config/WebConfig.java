@@ -0,0 +1,41 @@
+package com.lobanmatin.budget_api.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilders;
+
+    public WebConfig(ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilders) {
+        this.objectMapperBuilders = objectMapperBuilders;
+    }
+
+    /**
+     * Adds Smile, CBOR and protobuf responses for clients that ask for them in Accept. They go after the JSON
+     * converter, so requests without an Accept header or with a wildcard still get JSON.
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        // Spring registers Smile and CBOR converters on its own, but with an ObjectMapper that ignores spring.jackson.*
+        converters.removeIf(converter -> converter instanceof MappingJackson2SmileHttpMessageConverter
+                || converter instanceof MappingJackson2CborHttpMessageConverter);
+
+        // The builder bean is a prototype, every call returns a fresh one with the Spring Boot settings
+        converters.add(new MappingJackson2SmileHttpMessageConverter(
+                objectMapperBuilders.getObject().factory(new SmileFactory()).build()));
+        converters.add(new MappingJackson2CborHttpMessageConverter(
+                objectMapperBuilders.getObject().factory(new CBORFactory()).build()));
+        converters.add(new ExpenseProtobufHttpMessageConverter());
+    }
+}
@@ -1,10 +1,12 @@
 package com.lobanmatin.budget_api.controller;
 
 import com.lobanmatin.budget_api.dto.BudgetRequest;
+import com.lobanmatin.budget_api.dto.BudgetStatus;
 import com.lobanmatin.budget_api.dto.UserRequest;
 import com.lobanmatin.budget_api.model.Budget;
 import com.lobanmatin.budget_api.model.ExpenseCategory;
 import com.lobanmatin.budget_api.service.BudgetService;
+import com.lobanmatin.budget_api.service.DataVersionService;
 import com.lobanmatin.budget_api.security.CustomUserDetails;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -15,12 +17,16 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.transaction.Transactional;
 import jakarta.validation.Valid;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.math.BigDecimal;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/budget")
@@ -28,9 +34,11 @@ import java.math.BigDecimal;
 public class BudgetController {
 
     private final BudgetService budgetService;
+    private final DataVersionService dataVersionService;
 
-    public BudgetController(BudgetService budgetService) {
+    public BudgetController(BudgetService budgetService, DataVersionService dataVersionService) {
         this.budgetService = budgetService;
+        this.dataVersionService = dataVersionService;
     }
 
     @Operation(
@@ -72,13 +80,18 @@ public class BudgetController {
 
     @Operation(
             summary = "Get a user's budget",
-            description = "Retrieve the budget associated with the currently authenticated user, if it exists.",
+            description = "Retrieve the budget associated with the currently authenticated user, if it exists. " +
+                    "Responses carry an ETag, send it back as If-None-Match to get 304 while the budget is unchanged. " +
+                    "Accept application/cbor, application/x-jackson-smile or application/x-protobuf for a binary " +
+                    "encoding instead of JSON.",
             responses = {
                     @ApiResponse(
                             responseCode = "200",
                             description = "Budget successfully retrieved.",
                             content = @Content(mediaType = "application/json",
                                     schema = @Schema(implementation = Budget.class))),
+                    @ApiResponse(responseCode = "304", description = "Budget unchanged since the ETag in If-None-Match.",
+                            content = @Content),
                     @ApiResponse(responseCode = "401", description = "Unauthorized. You must be authenticated to access this resource.",
                             content = @Content),
                     @ApiResponse(responseCode = "404", description = "No budget found for the user.",
@@ -86,9 +99,60 @@ public class BudgetController {
             }
     )
     @GetMapping
-    public ResponseEntity<Budget> getBudget(@AuthenticationPrincipal CustomUserDetails userDetails) {
+    public ResponseEntity<Budget> getBudget(@AuthenticationPrincipal CustomUserDetails userDetails, WebRequest request) {
+        // Answered from the data version alone when the client already has the current budget
+        Optional<String> eTag = dataVersionService.getETag(userDetails.getId());
+        if (eTag.isPresent() && request.checkNotModified(eTag.get())) {
+            return null;
+        }
+
         Budget budget = budgetService.getBudget(userDetails.getId());
-        return ResponseEntity.ok(budget);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(budget);
+    }
+
+    @Operation(
+            summary = "Get a user's budget status",
+            description = "Compare the budget of the currently authenticated user against their spending in the current " +
+                    "calendar month, for the total limit and for every category limit.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Budget status successfully retrieved.",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = BudgetStatus.class),
+                                    examples = {
+                                            @ExampleObject(name = "BudgetStatusExample", value = """
+                                                    {
+                                                      "period": "2025-07",
+                                                      "totalIncome": 5000,
+                                                      "totalLimit": 1200,
+                                                      "totalSpent": 508.35,
+                                                      "totalRemaining": 691.65,
+                                                      "totalPercentUsed": 42.36,
+                                                      "categories": [
+                                                        {
+                                                          "category": "FOOD",
+                                                          "limit": 500,
+                                                          "spent": 412.35,
+                                                          "remaining": 87.65,
+                                                          "percentUsed": 82.47
+                                                        }
+                                                      ]
+                                                    }
+                                                    """)
+                                    })),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized. You must be authenticated to access this resource.",
+                            content = @Content),
+                    @ApiResponse(responseCode = "404", description = "No budget found for the user.",
+                            content = @Content)
+            }
+    )
+    @GetMapping("/status")
+    public ResponseEntity<BudgetStatus> getBudgetStatus(@AuthenticationPrincipal CustomUserDetails userDetails) {
+        return ResponseEntity.ok(budgetService.getBudgetStatus(userDetails.getId()));
     }
 
     @Operation(
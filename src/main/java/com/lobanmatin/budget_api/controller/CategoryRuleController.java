@@ -0,0 +1,156 @@
+package com.lobanmatin.budget_api.controller;
+
+import com.lobanmatin.budget_api.dto.CategoryRuleRequest;
+import com.lobanmatin.budget_api.model.CategoryRule;
+import com.lobanmatin.budget_api.security.CustomUserDetails;
+import com.lobanmatin.budget_api.service.CategoryRuleService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/category-rules")
+@Tag(name = "Category rules", description = "Keyword rules that categorise imported expenses by their title")
+public class CategoryRuleController {
+
+    private final CategoryRuleService categoryRuleService;
+
+    public CategoryRuleController(CategoryRuleService categoryRuleService) {
+        this.categoryRuleService = categoryRuleService;
+    }
+
+    @Operation(
+            summary = "List the user's category rules",
+            description = "Rules of the authenticated user. They are applied together with the global rules, a user's rule wins over a global rule matching the same title.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Rules of the user.",
+                            content = @Content(mediaType = "application/json",
+                                    array = @ArraySchema(schema = @Schema(implementation = CategoryRule.class)))),
+                    @ApiResponse(responseCode = "401",
+                            description = "Unauthorized. You must be authenticated to access this resource.",
+                            content = @Content)
+            }
+    )
+    @GetMapping
+    public ResponseEntity<List<CategoryRule>> getRules(@AuthenticationPrincipal CustomUserDetails userDetails) {
+        return ResponseEntity.ok(categoryRuleService.getRules(userDetails.getId()));
+    }
+
+    @Operation(
+            summary = "Add a category rule",
+            description = "Expenses whose title contains the keyword as a whole word, in any case, are given the category. " +
+                    "Of several matching keywords the longest wins. Applies to later imports and to POST /expenses/categorise.",
+            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    required = true,
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = CategoryRuleRequest.class),
+                            examples = @ExampleObject(name = "Example 1", value = """
+                                    {
+                                      "keyword": "woolworths",
+                                      "category": "FOOD"
+                                    }
+                                    """)
+                    )
+            ),
+            responses = {
+                    @ApiResponse(responseCode = "201", description = "Rule created.",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = CategoryRule.class))),
+                    @ApiResponse(responseCode = "400", description = "Invalid rule, or the user already has the maximum number of rules.",
+                            content = @Content),
+                    @ApiResponse(responseCode = "401",
+                            description = "Unauthorized. You must be authenticated to access this resource.",
+                            content = @Content)
+            }
+    )
+    @PostMapping
+    public ResponseEntity<CategoryRule> addRule(@Valid @RequestBody CategoryRuleRequest request,
+                                                @AuthenticationPrincipal CustomUserDetails userDetails) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(categoryRuleService.addRule(userDetails.getId(), request));
+    }
+
+    @Operation(
+            summary = "Delete a category rule",
+            description = "Deletes one of the authenticated user's rules. Expenses it already categorised keep their category.",
+            parameters = {
+                    @Parameter(name = "id", description = "ID of the rule to delete", required = true, example = "3")
+            },
+            responses = {
+                    @ApiResponse(responseCode = "204", description = "Rule deleted.", content = @Content),
+                    @ApiResponse(responseCode = "404", description = "No rule with this id belongs to the user.", content = @Content)
+            }
+    )
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteRule(@PathVariable Long id,
+                                           @AuthenticationPrincipal CustomUserDetails userDetails) {
+        categoryRuleService.deleteRule(userDetails.getId(), id);
+        return ResponseEntity.noContent().build();
+    }
+
+    @Operation(
+            summary = "List the global category rules",
+            description = "Rules applied to the expenses of every user.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Global rules.",
+                            content = @Content(mediaType = "application/json",
+                                    array = @ArraySchema(schema = @Schema(implementation = CategoryRule.class)))),
+                    @ApiResponse(responseCode = "401",
+                            description = "Unauthorized. You must be authenticated to access this resource.",
+                            content = @Content)
+            }
+    )
+    @GetMapping("/global")
+    public ResponseEntity<List<CategoryRule>> getGlobalRules() {
+        return ResponseEntity.ok(categoryRuleService.getGlobalRules());
+    }
+
+    @Operation(
+            summary = "Add a global category rule",
+            description = "Adds a rule applied to the expenses of every user. Requires admin role.",
+            responses = {
+                    @ApiResponse(responseCode = "201", description = "Rule created.",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = CategoryRule.class))),
+                    @ApiResponse(responseCode = "400", description = "Invalid rule.", content = @Content),
+                    @ApiResponse(responseCode = "403", description = "Access denied. Only admins can perform this operation.",
+                            content = @Content)
+            }
+    )
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/global")
+    public ResponseEntity<CategoryRule> addGlobalRule(@Valid @RequestBody CategoryRuleRequest request) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(categoryRuleService.addGlobalRule(request));
+    }
+
+    @Operation(
+            summary = "Delete a global category rule",
+            description = "Deletes a rule applied to every user. Requires admin role.",
+            parameters = {
+                    @Parameter(name = "id", description = "ID of the rule to delete", required = true, example = "3")
+            },
+            responses = {
+                    @ApiResponse(responseCode = "204", description = "Rule deleted.", content = @Content),
+                    @ApiResponse(responseCode = "403", description = "Access denied. Only admins can perform this operation.",
+                            content = @Content),
+                    @ApiResponse(responseCode = "404", description = "No global rule with this id.", content = @Content)
+            }
+    )
+    @PreAuthorize("hasRole('ADMIN')")
+    @DeleteMapping("/global/{id}")
+    public ResponseEntity<Void> deleteGlobalRule(@PathVariable Long id) {
+        categoryRuleService.deleteGlobalRule(id);
+        return ResponseEntity.noContent().build();
+    }
+}
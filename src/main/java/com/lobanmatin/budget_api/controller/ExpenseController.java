@@ -1,13 +1,22 @@
 package com.lobanmatin.budget_api.controller;
 
 import com.lobanmatin.budget_api.dto.BudgetRequest;
+import com.lobanmatin.budget_api.dto.CategorisationReport;
+import com.lobanmatin.budget_api.dto.ExpensePage;
 import com.lobanmatin.budget_api.dto.ExpenseRequest;
+import com.lobanmatin.budget_api.dto.ExpenseResponse;
+import com.lobanmatin.budget_api.dto.ImportJobResponse;
+import com.lobanmatin.budget_api.dto.SpendingTotal;
 import com.lobanmatin.budget_api.model.Budget;
-import com.lobanmatin.budget_api.model.Expense;
+import com.lobanmatin.budget_api.model.CsvProfile;
 import com.lobanmatin.budget_api.model.ExpenseCategory;
+import com.lobanmatin.budget_api.model.ExportFormat;
 import com.lobanmatin.budget_api.model.User;
 import com.lobanmatin.budget_api.security.CustomUserDetails;
+import com.lobanmatin.budget_api.service.DataVersionService;
+import com.lobanmatin.budget_api.service.ExpenseExportService;
 import com.lobanmatin.budget_api.service.ExpenseService;
+import com.lobanmatin.budget_api.service.ImportJobService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
@@ -17,23 +26,46 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.net.URI;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/expenses")
 @Tag(name = "Expenses", description = "Endpoints for managing user expenses with CRUD operations")
 public class ExpenseController {
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private static final String NDJSON = "application/x-ndjson";
+
     private final ExpenseService expenseService;
+    private final ExpenseExportService expenseExportService;
+    private final ImportJobService importJobService;
+    private final DataVersionService dataVersionService;
 
-    public ExpenseController(ExpenseService expenseService) {
+    public ExpenseController(ExpenseService expenseService, ExpenseExportService expenseExportService,
+                             ImportJobService importJobService, DataVersionService dataVersionService) {
         this.expenseService = expenseService;
+        this.expenseExportService = expenseExportService;
+        this.importJobService = importJobService;
+        this.dataVersionService = dataVersionService;
     }
 
     @Operation(
@@ -63,10 +95,7 @@ public class ExpenseController {
                     @ApiResponse(
                             responseCode = "201",
                             description = "Expense successfully created for user.",
-                            content = @Content(
-                                    mediaType = "application/json",
-                                    schema = @Schema(implementation = Expense.class)
-                            )
+                            content = @Content
                     ),
                     @ApiResponse(
                             responseCode = "400",
@@ -76,21 +105,48 @@ public class ExpenseController {
             }
     )
     @PostMapping
-    public ResponseEntity<Expense> createExpense(@Valid @RequestBody ExpenseRequest expenseRequest) {
+    public ResponseEntity<Void> createExpense(@Valid @RequestBody ExpenseRequest expenseRequest) {
         expenseService.createExpense(expenseRequest);
         return ResponseEntity.status(HttpStatus.CREATED).build();
     }
 
     @Operation(
-            summary = "Get all of the user's expenses",
-            description = "Retrieve all expenses associated with the currently authenticated user. " +
-                    "If a category is specified, only expenses from that category will be returned.",
+            summary = "Get the user's expenses, one page at a time",
+            description = "Retrieve expenses associated with the currently authenticated user, newest first. " +
+                    "Results are paginated with a cursor: pass the 'nextCursor' of a page as 'after' to fetch the next one. " +
+                    "If a category is specified, only expenses from that category will be returned. " +
+                    "Responses carry an ETag, send it back as If-None-Match to get 304 while the user's data is unchanged. " +
+                    "Accept application/cbor, application/x-jackson-smile or application/x-protobuf for a binary " +
+                    "encoding instead of JSON.",
             parameters = {
                     @Parameter(
                             name = "category",
                             description = "Optional. Filter expenses by category. Must match an existing category (e.g. TRANSPORT, FOOD).",
                             required = false,
                             example = "FOOD"
+                    ),
+                    @Parameter(
+                            name = "from",
+                            description = "Optional. Earliest expense date to include, in YYYY-MM-DD.",
+                            required = false,
+                            example = "2025-07-01"
+                    ),
+                    @Parameter(
+                            name = "to",
+                            description = "Optional. Latest expense date to include, in YYYY-MM-DD.",
+                            required = false,
+                            example = "2025-07-31"
+                    ),
+                    @Parameter(
+                            name = "after",
+                            description = "Optional. Cursor returned as 'nextCursor' by the previous page of the same date range.",
+                            required = false
+                    ),
+                    @Parameter(
+                            name = "limit",
+                            description = "Optional. Maximum number of expenses in the page, between 1 and " + MAX_PAGE_SIZE + ".",
+                            required = false,
+                            example = "100"
                     )
             },
             responses = {
@@ -99,9 +155,14 @@ public class ExpenseController {
                             description = "Expenses successfully retrieved.",
                             content = @Content(
                                     mediaType = "application/json",
-                                    array = @ArraySchema(schema = @Schema(implementation = Expense.class))
+                                    schema = @Schema(implementation = ExpensePage.class)
                             )
                     ),
+                    @ApiResponse(
+                            responseCode = "304",
+                            description = "No expense or budget of the user changed since the ETag in If-None-Match.",
+                            content = @Content
+                    ),
                     @ApiResponse(
                             responseCode = "400",
                             description = "Invalid input parameter.",
@@ -115,67 +176,260 @@ public class ExpenseController {
             }
     )
     @GetMapping
-    public ResponseEntity<List<Expense>> getExpenses(@RequestParam(required = false) String category) {
-        List<Expense> expenses;
-        if (category == null) {
-            expenses = expenseService.getAllExpenses();
-        } else {
-            ExpenseCategory expenseCategory;
+    public ResponseEntity<ExpensePage> getExpenses(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+            @AuthenticationPrincipal CustomUserDetails userDetails,
+            WebRequest request) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        ExpenseCategory expenseCategory = null;
+        if (category != null) {
             try {
                 expenseCategory = ExpenseCategory.valueOf(category.toUpperCase());
             } catch (IllegalArgumentException e) {
                 // invalid category string
                 return ResponseEntity.badRequest().build(); // 400 Bad Request
             }
-            expenses = expenseService.getExpensesByCategory(expenseCategory);
         }
-        return ResponseEntity.ok(expenses);
+
+        // The version covers every page and filter, checked before the expenses table is queried
+        Optional<String> eTag = dataVersionService.getETag(userDetails.getId());
+        if (eTag.isPresent() && request.checkNotModified(eTag.get())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(expenseService.getExpensePage(expenseCategory, from, to, after, limit));
     }
 
     @Operation(
-            summary = "Upload expenses from a CSV file",
-            description = "Upload a CSV file containing expenses and add them to the currently authenticated user's expense records. " +
-                    "Each row in the file must follow the order: **date, amount, title[, category]**. The category field is optional.",
+            summary = "Stream all of the user's expenses",
+            description = "Selected by requesting GET /expenses with 'Accept: " + NDJSON + "'. Every expense of the " +
+                    "currently authenticated user in the date range is written as one JSON object per line, newest first. " +
+                    "Rows are sent as they are read, so the whole history can be fetched in one request.",
             parameters = {
                     @Parameter(
-                            name = "file",
-                            description = "CSV file to upload. Must have a header row and follow the format: `date,amount,title[,category]`.\n\n" +
-                                    "- `date` must be in `YYYY-MM-DD` format\n" +
-                                    "- `amount` must be a valid number\n" +
-                                    "- `title` is a short description of the expense\n" +
-                                    "- `category` (optional) must match one of the predefined categories if present",
-                            required = true,
-                            example = "expenses.csv"
+                            name = "category",
+                            description = "Optional. Filter expenses by category. Must match an existing category (e.g. TRANSPORT, FOOD).",
+                            required = false,
+                            example = "FOOD"
+                    ),
+                    @Parameter(
+                            name = "from",
+                            description = "Optional. Earliest expense date to include, in YYYY-MM-DD.",
+                            required = false,
+                            example = "2025-07-01"
+                    ),
+                    @Parameter(
+                            name = "to",
+                            description = "Optional. Latest expense date to include, in YYYY-MM-DD.",
+                            required = false,
+                            example = "2025-07-31"
                     )
             },
             responses = {
                     @ApiResponse(
-                            responseCode = "201",
-                            description = "Expenses successfully uploaded and saved.",
+                            responseCode = "200",
+                            description = "Expenses streamed, one JSON object per line.",
+                            content = @Content(
+                                    mediaType = NDJSON,
+                                    schema = @Schema(implementation = ExpenseResponse.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Invalid input parameter.",
+                            content = @Content
+                    ),
+                    @ApiResponse(
+                            responseCode = "401",
+                            description = "Unauthorized. You must be authenticated to access this resource.",
+                            content = @Content
+                    )
+            }
+    )
+    @GetMapping(produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamExpenses(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @AuthenticationPrincipal CustomUserDetails userDetails) {
+        if (from != null && to != null && from.isAfter(to)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        ExpenseCategory expenseCategory = null;
+        if (category != null) {
+            try {
+                expenseCategory = ExpenseCategory.valueOf(category.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+
+        // The body is written on an async thread, so the user is resolved here rather than from the security context
+        Long userId = userDetails.getId();
+        ExpenseCategory filter = expenseCategory;
+        StreamingResponseBody body = out -> expenseExportService.writeNdjson(userId, filter, from, to, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(body);
+    }
+
+    @Operation(
+            summary = "Download the user's expenses as a file",
+            description = "Export every expense of the currently authenticated user in the date range, newest first. " +
+                    "CSV uses the Date,Amount,Title layout of the upload endpoint, so the file can be uploaded again. " +
+                    "COLUMNAR writes groups of rows as one JSON object of column arrays per line, for analytics tools. " +
+                    "Either format can be gzip compressed.",
+            parameters = {
+                    @Parameter(
+                            name = "format",
+                            description = "Optional. CSV (default) or COLUMNAR.",
+                            required = false,
+                            example = "CSV"
+                    ),
+                    @Parameter(
+                            name = "gzip",
+                            description = "Optional. Compress the file with gzip, defaults to false.",
+                            required = false,
+                            example = "true"
+                    ),
+                    @Parameter(
+                            name = "category",
+                            description = "Optional. Only export expenses of this category (e.g. TRANSPORT, FOOD).",
+                            required = false,
+                            example = "FOOD"
+                    ),
+                    @Parameter(
+                            name = "from",
+                            description = "Optional. Earliest expense date to include, in YYYY-MM-DD.",
+                            required = false,
+                            example = "2025-07-01"
+                    ),
+                    @Parameter(
+                            name = "to",
+                            description = "Optional. Latest expense date to include, in YYYY-MM-DD.",
+                            required = false,
+                            example = "2025-07-31"
+                    )
+            },
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Export file, sent as it is written.",
+                            content = {
+                                    @Content(mediaType = "text/csv"),
+                                    @Content(mediaType = NDJSON),
+                                    @Content(mediaType = "application/gzip")
+                            }
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Invalid input parameter.",
+                            content = @Content
+                    ),
+                    @ApiResponse(
+                            responseCode = "401",
+                            description = "Unauthorized. You must be authenticated to access this resource.",
+                            content = @Content
+                    )
+            }
+    )
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportExpenses(
+            @RequestParam(defaultValue = "CSV") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @AuthenticationPrincipal CustomUserDetails userDetails) {
+        if (from != null && to != null && from.isAfter(to)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        ExportFormat exportFormat;
+        ExpenseCategory expenseCategory = null;
+        try {
+            exportFormat = ExportFormat.valueOf(format.toUpperCase());
+            if (category != null) {
+                expenseCategory = ExpenseCategory.valueOf(category.toUpperCase());
+            }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        String fileName = exportFormat == ExportFormat.CSV ? "expenses.csv" : "expenses.ndjson";
+        MediaType contentType = MediaType.parseMediaType(exportFormat == ExportFormat.CSV ? "text/csv" : NDJSON);
+        if (gzip) {
+            fileName += ".gz";
+            contentType = MediaType.parseMediaType("application/gzip");
+        }
+
+        Long userId = userDetails.getId();
+        ExpenseCategory filter = expenseCategory;
+        StreamingResponseBody body = out -> expenseExportService.writeExport(userId, exportFormat, gzip, filter, from, to, out);
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(body);
+    }
+
+    @Operation(
+            summary = "Get a summary of the user's spending",
+            description = "Total the currently authenticated user's expenses between two dates, grouped by category, " +
+                    "by calendar month, or by both. Without dates the current calendar month is summarised.",
+            parameters = {
+                    @Parameter(
+                            name = "from",
+                            description = "Optional. Earliest expense date to include, in YYYY-MM-DD. Defaults to the start of the current month.",
+                            required = false,
+                            example = "2025-07-01"
+                    ),
+                    @Parameter(
+                            name = "to",
+                            description = "Optional. Latest expense date to include, in YYYY-MM-DD. Defaults to the end of the current month.",
+                            required = false,
+                            example = "2025-07-31"
+                    ),
+                    @Parameter(
+                            name = "groupBy",
+                            description = "Optional. Dimensions to group on, 'category', 'month' or both. Defaults to 'category'.",
+                            required = false,
+                            example = "category,month"
+                    )
+            },
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Spending summary successfully computed.",
                             content = @Content(
                                     mediaType = "application/json",
-                                    array = @ArraySchema(
-                                            schema = @Schema(implementation = Expense.class)
-                                    ),
+                                    array = @ArraySchema(schema = @Schema(implementation = SpendingTotal.class)),
                                     examples = {
                                             @ExampleObject(
-                                                    name = "ExpenseListExample",
-                                                    summary = "Example response with two expenses",
+                                                    name = "CategoryMonthSummaryExample",
+                                                    summary = "Example summary grouped by category and month",
                                                     value = """
                                                             [
                                                               {
-                                                                "id": 1,
-                                                                "title": "Train ticket",
-                                                                "date": "2025-07-01",
-                                                                "amount": 3.50,
-                                                                "category": "TRANSPORT"
+                                                                "category": "FOOD",
+                                                                "month": "2025-07",
+                                                                "total": 412.35,
+                                                                "count": 23
                                                               },
                                                               {
-                                                                "id": 2,
-                                                                "title": "Dinner",
-                                                                "date": "2025-07-02",
-                                                                "amount": 18.00,
-                                                                "category": "FOOD"
+                                                                "category": "TRANSPORT",
+                                                                "month": "2025-07",
+                                                                "total": 96.00,
+                                                                "count": 12
                                                               }
                                                             ]
                                                             """
@@ -183,6 +437,68 @@ public class ExpenseController {
                                     }
                             )
                     ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Invalid input parameter.",
+                            content = @Content
+                    ),
+                    @ApiResponse(
+                            responseCode = "401",
+                            description = "Unauthorized. You must be authenticated to access this resource.",
+                            content = @Content
+                    )
+            }
+    )
+    @GetMapping("/summary")
+    public ResponseEntity<List<SpendingTotal>> getSpendingSummary(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "category") List<String> groupBy) {
+        boolean byCategory = false;
+        boolean byMonth = false;
+        for (String dimension : groupBy) {
+            if (dimension.equalsIgnoreCase("category")) {
+                byCategory = true;
+            } else if (dimension.equalsIgnoreCase("month")) {
+                byMonth = true;
+            } else {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        return ResponseEntity.ok(expenseService.getSpendingSummary(from, to, byCategory, byMonth));
+    }
+
+    @Operation(
+            summary = "Upload expenses from a CSV file",
+            description = "Upload a CSV file containing expenses and add them to the currently authenticated user's expense records. " +
+                    "Bank exports are read through a format profile, which is detected from the header row when not given. " +
+                    "Files without a recognised header use the DEFAULT layout: **date, amount, title**. " +
+                    "With a profile given, only that profile's header row is skipped and any other unparseable row is reported as malformed.",
+            parameters = {
+                    @Parameter(
+                            name = "file",
+                            description = "CSV file to upload. Quoted fields may contain commas. In the DEFAULT layout:\n\n" +
+                                    "- `date` must be in `D/MM/YYYY` format\n" +
+                                    "- `amount` must be a valid number, the sign is ignored\n" +
+                                    "- `title` is a short description of the expense",
+                            required = true,
+                            example = "expenses.csv"
+                    ),
+                    @Parameter(
+                            name = "format",
+                            description = "Bank format profile: DEFAULT, COMMBANK, WESTPAC or CHASE. Detected from the header row when omitted.",
+                            example = "WESTPAC"
+                    )
+            },
+            responses = {
+                    @ApiResponse(
+                            responseCode = "202",
+                            description = "Import job queued, poll the Location header for its progress.",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = ImportJobResponse.class)
+                            )
+                    ),
                     @ApiResponse(
                             responseCode = "400",
                             description = "File is missing or invalid format",
@@ -192,17 +508,96 @@ public class ExpenseController {
                             responseCode = "401",
                             description = "Unauthorized. You must be authenticated to access this resource.",
                             content = @Content
+                    ),
+                    @ApiResponse(
+                            responseCode = "503",
+                            description = "Too many imports are queued, retry after the Retry-After delay.",
+                            content = @Content
                     )
             }
     )
     @PostMapping("/upload")
-    public ResponseEntity<String> uploadExpenses(@RequestParam("file") MultipartFile file,
-                                                 @AuthenticationPrincipal CustomUserDetails userDetails) {
+    public ResponseEntity<?> uploadExpenses(@RequestParam("file") MultipartFile file,
+                                            @RequestParam(required = false) CsvProfile format,
+                                            @AuthenticationPrincipal CustomUserDetails userDetails) {
         if (file == null || file.isEmpty()) {
             return ResponseEntity.badRequest().body("CSV file is missing");
         }
-        expenseService.uploadExpensesFromCSV(file);
-        return ResponseEntity.ok().body("Expenses successfully uploaded and saved.");
+        ImportJobResponse job = importJobService.submit(userDetails.getId(), file, format);
+        return ResponseEntity.accepted()
+                .location(URI.create("/expenses/upload/" + job.getJobId()))
+                .body(job);
+    }
+
+    @Operation(
+            summary = "Get the progress of a CSV import",
+            description = "Report the status, rows processed, throughput and row counts of an import job started by the authenticated user.",
+            parameters = {
+                    @Parameter(name = "jobId", description = "Id returned by the upload", required = true)
+            },
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Current state of the import job.",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = ImportJobResponse.class),
+                                    examples = {
+                                            @ExampleObject(
+                                                    name = "ImportJobExample",
+                                                    summary = "Example of a running import",
+                                                    value = """
+                                                            {
+                                                              "jobId": "3f2b8c1e-5d7a-4e0b-9a61-2c4d8e9f0a1b",
+                                                              "status": "RUNNING",
+                                                              "fileName": "expenses.csv",
+                                                              "format": null,
+                                                              "rowsProcessed": 12000,
+                                                              "rowsPerSecond": 8450.5,
+                                                              "inserted": 11890,
+                                                              "duplicates": 96,
+                                                              "malformed": 3,
+                                                              "skipped": 10,
+                                                              "error": null,
+                                                              "createdAt": "2025-07-07T09:30:00Z",
+                                                              "startedAt": "2025-07-07T09:30:01Z",
+                                                              "finishedAt": null
+                                                            }
+                                                            """
+                                            )
+                                    }
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "No import job with this id belongs to the user.",
+                            content = @Content
+                    )
+            }
+    )
+    @GetMapping("/upload/{jobId}")
+    public ResponseEntity<ImportJobResponse> getImportJob(@PathVariable UUID jobId,
+                                                          @AuthenticationPrincipal CustomUserDetails userDetails) {
+        return ResponseEntity.ok(importJobService.getJob(jobId, userDetails.getId()));
+    }
+
+    @Operation(
+            summary = "Cancel a CSV import",
+            description = "Stop a queued or running import job. Batches already committed are kept.",
+            parameters = {
+                    @Parameter(name = "jobId", description = "Id returned by the upload", required = true)
+            },
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Import job cancelled.",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ImportJobResponse.class))),
+                    @ApiResponse(responseCode = "400", description = "The import job has already finished.", content = @Content),
+                    @ApiResponse(responseCode = "404", description = "No import job with this id belongs to the user.", content = @Content)
+            }
+    )
+    @DeleteMapping("/upload/{jobId}")
+    public ResponseEntity<ImportJobResponse> cancelImportJob(@PathVariable UUID jobId,
+                                                             @AuthenticationPrincipal CustomUserDetails userDetails) {
+        return ResponseEntity.ok(importJobService.cancel(jobId, userDetails.getId()));
     }
 
 
@@ -235,18 +630,46 @@ public class ExpenseController {
         return ResponseEntity.ok().body("Category of expense successfully updated.");
     }
 
+    @Operation(
+            summary = "Categorise expenses with the category rules",
+            description = "Run the user's and the global category rules over the authenticated user's expenses in one pass, " +
+                    "instead of one PATCH per expense. Expenses no rule matches keep their category.",
+            parameters = {
+                    @Parameter(name = "uncategorisedOnly", description = "Only categorise expenses still set to N/A. " +
+                            "When false, expenses already categorised are moved if a rule matches their title.", example = "true")
+            },
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Number of expenses checked and moved.",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = CategorisationReport.class))),
+                    @ApiResponse(responseCode = "401",
+                            description = "Unauthorized. You must be authenticated to access this resource.",
+                            content = @Content)
+            }
+    )
+    @PostMapping("/categorise")
+    public ResponseEntity<CategorisationReport> categoriseExpenses(
+            @RequestParam(defaultValue = "true") boolean uncategorisedOnly,
+            @AuthenticationPrincipal CustomUserDetails userDetails) {
+        return ResponseEntity.ok(expenseService.recategoriseExpenses(userDetails.getId(), uncategorisedOnly));
+    }
+
     @Operation(
             summary = "Delete all expenses",
-            description = "Deletes all expenses in the system.",
+            description = "Deletes all expenses of the currently authenticated user. Very large accounts are purged in the background.",
             responses = {
                     @ApiResponse(responseCode = "204",
                             description = "All expenses deleted successfully.",
                             content = @Content),
+                    @ApiResponse(responseCode = "202",
+                            description = "Expenses are being deleted in the background.",
+                            content = @Content),
             }
     )
     @DeleteMapping
     public ResponseEntity<Void> deleteExpenses() {
-        expenseService.deleteAllExpenses();
+        if (!expenseService.deleteAllExpenses()) {
+            return ResponseEntity.accepted().build();
+        }
         return ResponseEntity.noContent().build();
     }
 
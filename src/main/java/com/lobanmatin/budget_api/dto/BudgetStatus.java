@@ -0,0 +1,39 @@
+package com.lobanmatin.budget_api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BudgetStatus {
+
+    @Schema(description = "Month the spending is measured over", type = "string", example = "2025-07")
+    private YearMonth period;
+
+    @Schema(description = "Total monthly income for user", example = "5000")
+    private BigDecimal totalIncome;
+
+    @Schema(description = "Total spending limit for user's budget", example = "1200")
+    private BigDecimal totalLimit;
+
+    @Schema(description = "Amount spent across all categories this month", example = "508.35")
+    private BigDecimal totalSpent;
+
+    @Schema(description = "Amount left before the total limit is reached, negative when exceeded", example = "691.65")
+    private BigDecimal totalRemaining;
+
+    @Schema(description = "Percentage of the total limit already spent", example = "42.36")
+    private BigDecimal totalPercentUsed;
+
+    @Schema(description = "Spending against each category limit")
+    private List<CategoryStatus> categories;
+}
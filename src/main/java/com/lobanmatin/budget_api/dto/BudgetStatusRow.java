@@ -0,0 +1,18 @@
+package com.lobanmatin.budget_api.dto;
+
+import java.math.BigDecimal;
+
+// Row of the budget status query, one per category limit (or a single row without category when there are none)
+public interface BudgetStatusRow {
+    BigDecimal getTotalLimit();
+
+    BigDecimal getTotalIncome();
+
+    BigDecimal getTotalSpent();
+
+    String getCategory();
+
+    BigDecimal getCategoryLimit();
+
+    BigDecimal getCategorySpent();
+}
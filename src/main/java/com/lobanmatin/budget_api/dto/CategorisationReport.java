@@ -0,0 +1,10 @@
+package com.lobanmatin.budget_api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+public record CategorisationReport(
+        @Schema(description = "Number of expenses checked against the rules", example = "1200")
+        int examined,
+        @Schema(description = "Number of expenses moved to another category", example = "870")
+        int updated) {
+}
@@ -0,0 +1,10 @@
+package com.lobanmatin.budget_api.dto;
+
+import com.lobanmatin.budget_api.model.ExpenseCategory;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Expense moved from one category to another by a bulk re-categorisation
+public record CategoryChange(Long id, LocalDate date, BigDecimal amount, ExpenseCategory from, ExpenseCategory to) {
+}
@@ -0,0 +1,26 @@
+package com.lobanmatin.budget_api.dto;
+
+import com.lobanmatin.budget_api.model.ExpenseCategory;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategoryRuleRequest {
+
+    @Schema(description = "Word or phrase to look for in expense titles, matched case insensitively as whole words",
+            example = "woolworths")
+    @NotBlank(message = "Keyword is required")
+    @Size(max = 100, message = "Keyword must be at most 100 characters")
+    private String keyword;
+
+    @Schema(description = "Category given to expenses whose title contains the keyword", example = "FOOD")
+    @NotNull(message = "Category is required")
+    private ExpenseCategory category;
+}
@@ -0,0 +1,32 @@
+package com.lobanmatin.budget_api.dto;
+
+import com.lobanmatin.budget_api.model.ExpenseCategory;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategoryStatus {
+
+    @Schema(description = "Category the limit applies to", example = "FOOD")
+    private ExpenseCategory category;
+
+    @Schema(description = "Spending limit set for the category", example = "500")
+    private BigDecimal limit;
+
+    @Schema(description = "Amount spent in the category this month", example = "412.35")
+    private BigDecimal spent;
+
+    @Schema(description = "Amount left before the limit is reached, negative when exceeded", example = "87.65")
+    private BigDecimal remaining;
+
+    @Schema(description = "Percentage of the limit already spent", example = "82.47")
+    private BigDecimal percentUsed;
+}
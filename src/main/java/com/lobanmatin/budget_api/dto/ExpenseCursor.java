@@ -0,0 +1,26 @@
+package com.lobanmatin.budget_api.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// Position of the last expense returned in a page, expenses are ordered by (date, id) descending
+public record ExpenseCursor(LocalDate date, Long id) {
+
+    public String encode() {
+        String raw = date + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ExpenseCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            return new ExpenseCursor(LocalDate.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid pagination cursor");
+        }
+    }
+}
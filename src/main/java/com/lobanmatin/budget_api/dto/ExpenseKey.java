@@ -0,0 +1,12 @@
+package com.lobanmatin.budget_api.dto;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+
+// Identity of an expense for import deduplication, amounts are normalised to the column scale
+public record ExpenseKey(LocalDate date, BigDecimal amount, String title) {
+    public ExpenseKey {
+        amount = amount.setScale(2, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,21 @@
+package com.lobanmatin.budget_api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExpensePage {
+
+    @Schema(description = "Expenses in this page, newest first")
+    private List<ExpenseResponse> items;
+
+    @Schema(description = "Cursor to pass as 'after' to fetch the next page, null on the last page",
+            example = "MjAyNS0wNy0wMToxMg")
+    private String nextCursor;
+}
@@ -0,0 +1,21 @@
+package com.lobanmatin.budget_api.dto;
+
+import com.lobanmatin.budget_api.model.ExpenseCategory;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Expense as returned by the API, selected straight into this record so no entity or user is loaded
+public record ExpenseResponse(
+        @Schema(description = "Id of the expense", example = "12")
+        Long id,
+        @Schema(description = "Title of the expense", example = "Lunch at cafe")
+        String title,
+        @Schema(description = "Amount spent", example = "18.50")
+        BigDecimal amount,
+        @Schema(description = "Expense category", example = "FOOD")
+        ExpenseCategory category,
+        @Schema(description = "Date of the expense", example = "2025-07-07")
+        LocalDate date) {
+}
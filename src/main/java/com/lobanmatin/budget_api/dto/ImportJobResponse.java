@@ -0,0 +1,58 @@
+package com.lobanmatin.budget_api.dto;
+
+import com.lobanmatin.budget_api.model.CsvProfile;
+import com.lobanmatin.budget_api.model.ImportJobStatus;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportJobResponse {
+
+    @Schema(description = "Id to poll the job with", example = "3f2b8c1e-5d7a-4e0b-9a61-2c4d8e9f0a1b")
+    private UUID jobId;
+
+    @Schema(description = "QUEUED, RUNNING, COMPLETED, FAILED or CANCELLED", example = "RUNNING")
+    private ImportJobStatus status;
+
+    @Schema(description = "Name of the uploaded file", example = "expenses.csv")
+    private String fileName;
+
+    @Schema(description = "Format profile requested on upload, null when detected from the header row", example = "WESTPAC")
+    private CsvProfile format;
+
+    @Schema(description = "Lines of the file processed so far", example = "12000")
+    private int rowsProcessed;
+
+    @Schema(description = "Lines processed per second since the job started", example = "8450.5")
+    private double rowsPerSecond;
+
+    @Schema(description = "Number of expenses inserted", example = "11890")
+    private int inserted;
+
+    @Schema(description = "Number of rows skipped because the expense already exists", example = "96")
+    private int duplicates;
+
+    @Schema(description = "Number of rows that could not be parsed", example = "3")
+    private int malformed;
+
+    @Schema(description = "Number of income rows skipped under the file's sign convention", example = "10")
+    private int skipped;
+
+    @Schema(description = "Reason the job failed", example = "Failed to read CSV file")
+    private String error;
+
+    private Instant createdAt;
+
+    private Instant startedAt;
+
+    private Instant finishedAt;
+}
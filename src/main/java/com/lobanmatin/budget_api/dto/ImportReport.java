@@ -0,0 +1,53 @@
+package com.lobanmatin.budget_api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class ImportReport {
+    // Only the first lines of each kind are listed so a badly formatted file cannot blow up the response
+    private static final int MAX_REPORTED_LINES = 1000;
+
+    @Schema(description = "Number of expenses inserted", example = "48")
+    private int inserted;
+
+    @Schema(description = "Number of rows skipped because the expense already exists", example = "2")
+    private int duplicates;
+
+    @Schema(description = "Number of rows that could not be parsed", example = "1")
+    private int malformed;
+
+    @Schema(description = "Number of income rows skipped under the file's sign convention", example = "5")
+    private int skipped;
+
+    @Schema(description = "Line numbers of duplicate rows (first 1000 only)", example = "[3, 17]")
+    private final List<Integer> duplicateLines = new ArrayList<>();
+
+    @Schema(description = "Line numbers of malformed rows (first 1000 only)", example = "[9]")
+    private final List<Integer> malformedLines = new ArrayList<>();
+
+    public void recordInserted(int count) {
+        inserted += count;
+    }
+
+    public void recordDuplicate(int lineNumber) {
+        duplicates++;
+        if (duplicateLines.size() < MAX_REPORTED_LINES) {
+            duplicateLines.add(lineNumber);
+        }
+    }
+
+    public void recordSkipped() {
+        skipped++;
+    }
+
+    public void recordMalformed(int lineNumber) {
+        malformed++;
+        if (malformedLines.size() < MAX_REPORTED_LINES) {
+            malformedLines.add(lineNumber);
+        }
+    }
+}
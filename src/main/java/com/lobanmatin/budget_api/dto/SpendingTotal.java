@@ -0,0 +1,34 @@
+package com.lobanmatin.budget_api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.lobanmatin.budget_api.model.ExpenseCategory;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+
+// One group of a spending summary, the dimension that was not grouped on is left out
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record SpendingTotal(
+        @Schema(description = "Expense category of the group", example = "FOOD")
+        ExpenseCategory category,
+        @Schema(description = "Calendar month of the group", type = "string", example = "2025-07")
+        YearMonth month,
+        @Schema(description = "Sum of expense amounts in the group", example = "412.35")
+        BigDecimal total,
+        @Schema(description = "Number of expenses in the group", example = "23")
+        long count) {
+
+    // Constructors used by the GROUP BY projections in ExpenseRepository
+    public SpendingTotal(ExpenseCategory category, BigDecimal total, Long count) {
+        this(category, null, total, count);
+    }
+
+    public SpendingTotal(Integer year, Integer month, BigDecimal total, Long count) {
+        this(null, YearMonth.of(year, month), total, count);
+    }
+
+    public SpendingTotal(ExpenseCategory category, Integer year, Integer month, BigDecimal total, Long count) {
+        this(category, YearMonth.of(year, month), total, count);
+    }
+}
@@ -0,0 +1,15 @@
+package com.lobanmatin.budget_api.exception;
+
+// Thrown when a bounded worker pool is saturated, the client should retry after the given delay
+public class ServiceUnavailableException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public ServiceUnavailableException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -3,6 +3,8 @@ package com.lobanmatin.budget_api.model;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.DecimalMin;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.math.BigDecimal;
 import java.util.HashMap;
@@ -14,6 +16,7 @@ import java.util.Map;
 @Builder
 @Data
 @Table(name = "budgets")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "budgets")
 public class Budget {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -31,7 +34,9 @@ public class Budget {
     @DecimalMin(value = "0.0", inclusive = false, message = "Total income must be greater than 0")
     private BigDecimal totalIncome;
 
+    // Cached apart from the budget row, so the limits are not reloaded on every budget read
     @ElementCollection
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "budget-category-limits")
     @CollectionTable(name = "budget_category_limits", joinColumns = @JoinColumn(name = "budget_id"))
     @MapKeyColumn(name = "category")
     @MapKeyEnumerated(EnumType.STRING)
@@ -0,0 +1,27 @@
+package com.lobanmatin.budget_api.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+// Keyword that puts matching expense titles in a category, global when it has no user
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Builder
+@Data
+@Table(name = "category_rules")
+public class CategoryRule {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(nullable = false, length = 100)
+    private String keyword;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private ExpenseCategory category;
+}
@@ -0,0 +1,101 @@
+package com.lobanmatin.budget_api.model;
+
+import com.lobanmatin.budget_api.util.CsvReader;
+import com.lobanmatin.budget_api.util.CsvReader.DateOrder;
+
+import java.math.BigDecimal;
+
+/**
+ * Column layout of a bank's CSV export. Profiles with header names can be detected from the first row.
+ */
+public enum CsvProfile {
+    // date,amount,title as documented for the upload endpoint, any sign is read as spending
+    DEFAULT(0, 1, 2, DateOrder.DAY_MONTH_YEAR, AmountSign.ABSOLUTE, "Date", "Amount", "Title"),
+    // CommBank NetBank: no header, date,amount,description,balance with purchases negative
+    COMMBANK(0, 1, 2, DateOrder.DAY_MONTH_YEAR, AmountSign.DEBIT_NEGATIVE, null, null, null),
+    // Westpac: Bank Account,Date,Narrative,Debit Amount,Credit Amount,Balance,...
+    WESTPAC(1, 3, 2, DateOrder.DAY_MONTH_YEAR, AmountSign.DEBIT_POSITIVE, "Date", "Debit Amount", "Narrative"),
+    // Chase: Transaction Date,Post Date,Description,Category,Type,Amount,Memo
+    CHASE(0, 5, 2, DateOrder.MONTH_DAY_YEAR, AmountSign.DEBIT_NEGATIVE, "Transaction Date", "Amount", "Description");
+
+    public enum AmountSign {
+        // Every row is an expense, the sign is dropped
+        ABSOLUTE,
+        // Spending is negative, positive rows are income and skipped
+        DEBIT_NEGATIVE,
+        // Spending is positive, negative or blank rows are income and skipped
+        DEBIT_POSITIVE
+    }
+
+    private final int dateColumn;
+    private final int amountColumn;
+    private final int descriptionColumn;
+    private final DateOrder dateOrder;
+    private final AmountSign amountSign;
+    private final String dateHeader;
+    private final String amountHeader;
+    private final String descriptionHeader;
+
+    CsvProfile(int dateColumn, int amountColumn, int descriptionColumn, DateOrder dateOrder, AmountSign amountSign,
+               String dateHeader, String amountHeader, String descriptionHeader) {
+        this.dateColumn = dateColumn;
+        this.amountColumn = amountColumn;
+        this.descriptionColumn = descriptionColumn;
+        this.dateOrder = dateOrder;
+        this.amountSign = amountSign;
+        this.dateHeader = dateHeader;
+        this.amountHeader = amountHeader;
+        this.descriptionHeader = descriptionHeader;
+    }
+
+    public int getDateColumn() {
+        return dateColumn;
+    }
+
+    public int getAmountColumn() {
+        return amountColumn;
+    }
+
+    public int getDescriptionColumn() {
+        return descriptionColumn;
+    }
+
+    public DateOrder getDateOrder() {
+        return dateOrder;
+    }
+
+    public int getColumnCount() {
+        return Math.max(dateColumn, Math.max(amountColumn, descriptionColumn)) + 1;
+    }
+
+    // Returns the expense amount of a row, or null when the row is income under this profile's sign convention
+    public BigDecimal toExpenseAmount(CsvReader record) {
+        if (amountSign != AmountSign.ABSOLUTE && record.isEmpty(amountColumn)) {
+            return null;
+        }
+        BigDecimal amount = record.getDecimal(amountColumn);
+        return switch (amountSign) {
+            case ABSOLUTE -> amount.abs();
+            case DEBIT_NEGATIVE -> amount.signum() < 0 ? amount.negate() : null;
+            case DEBIT_POSITIVE -> amount.signum() > 0 ? amount : null;
+        };
+    }
+
+    public boolean matchesHeader(CsvReader record) {
+        return dateHeader != null
+                && record.fieldCount() >= getColumnCount()
+                && record.equalsIgnoreCase(dateColumn, dateHeader)
+                && record.equalsIgnoreCase(amountColumn, amountHeader)
+                && record.equalsIgnoreCase(descriptionColumn, descriptionHeader);
+    }
+
+    // Picks the profile whose header names match the first row, null when none does
+    public static CsvProfile detect(CsvReader header) {
+        for (CsvProfile profile : values()) {
+            if (profile.matchesHeader(header)) {
+                return profile;
+            }
+        }
+        return null;
+    }
+}
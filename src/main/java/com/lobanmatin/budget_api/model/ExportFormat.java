@@ -0,0 +1,11 @@
+package com.lobanmatin.budget_api.model;
+
+/**
+ * File layouts offered by the expense export.
+ */
+public enum ExportFormat {
+    // Date,Amount,Title rows in the DEFAULT upload layout, so an export can be uploaded again
+    CSV,
+    // Expenses in groups of rows, each group one JSON object of column arrays per line
+    COLUMNAR
+}
@@ -0,0 +1,70 @@
+package com.lobanmatin.budget_api.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+// Background CSV import, progress is written after every committed batch so a restarted job resumes where it stopped.
+// The owning instance renews the lease while the job is queued or running, an expired lease lets another take over
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Builder
+@Data
+@Table(name = "import_jobs")
+public class ImportJob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private ImportJobStatus status;
+
+    // Null when the profile is detected from the header row
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private CsvProfile format;
+
+    @Column(name = "file_name")
+    private String fileName;
+
+    // Last CSV line covered by a committed batch
+    @Column(name = "rows_processed", nullable = false)
+    private int rowsProcessed;
+
+    @Column(nullable = false)
+    private int inserted;
+
+    @Column(nullable = false)
+    private int duplicates;
+
+    @Column(nullable = false)
+    private int malformed;
+
+    @Column(nullable = false)
+    private int skipped;
+
+    @Column(length = 1000)
+    private String error;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "started_at")
+    private Instant startedAt;
+
+    @Column(name = "finished_at")
+    private Instant finishedAt;
+
+    @Column(length = 64)
+    private String owner;
+
+    @Column(name = "lease_expires_at")
+    private Instant leaseExpiresAt;
+}
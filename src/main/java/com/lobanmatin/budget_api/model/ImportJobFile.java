@@ -0,0 +1,21 @@
+package com.lobanmatin.budget_api.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.UUID;
+
+// Uploaded file of an import job, kept apart so polling a job never loads the file and removed once the job ends
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Data
+@Table(name = "import_job_files")
+public class ImportJobFile {
+    @Id
+    @Column(name = "job_id")
+    private UUID jobId;
+
+    @Column(nullable = false, columnDefinition = "bytea")
+    private byte[] content;
+}
@@ -0,0 +1,9 @@
+package com.lobanmatin.budget_api.model;
+
+public enum ImportJobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED,
+    CANCELLED
+}
@@ -0,0 +1,24 @@
+package com.lobanmatin.budget_api.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+// Logged out token, identified by its jti or digest and kept only until the token would have expired anyway
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Data
+@Table(name = "revoked_tokens")
+public class RevokedToken {
+    @Id
+    @Column(name = "token_id", length = 64)
+    private String tokenId;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    @Column(name = "revoked_at", nullable = false)
+    private Instant revokedAt;
+}
@@ -0,0 +1,46 @@
+package com.lobanmatin.budget_api.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Running spending total of one user for one category in one calendar month, kept in step with the expenses table
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Builder
+@Data
+@IdClass(SpendingRollup.Key.class)
+@Table(name = "spending_rollups")
+public class SpendingRollup {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    // First day of the month the rollup covers
+    @Id
+    @Column(name = "year_month")
+    private LocalDate yearMonth;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    private ExpenseCategory category;
+
+    @Column(nullable = false, precision = 38, scale = 2)
+    private BigDecimal total;
+
+    @Column(name = "expense_count", nullable = false)
+    private Long expenseCount;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long userId;
+        private LocalDate yearMonth;
+        private ExpenseCategory category;
+    }
+}
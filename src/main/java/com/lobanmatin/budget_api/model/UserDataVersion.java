@@ -0,0 +1,19 @@
+package com.lobanmatin.budget_api.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+// Counter bumped by every write to a user's expenses or budget, served as the ETag of their GET responses
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Data
+@Table(name = "user_data_versions")
+public class UserDataVersion {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(nullable = false)
+    private long version;
+}
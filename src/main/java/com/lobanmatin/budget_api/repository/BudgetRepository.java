@@ -1,14 +1,62 @@
 package com.lobanmatin.budget_api.repository;
 
+import com.lobanmatin.budget_api.dto.BudgetStatusRow;
 import com.lobanmatin.budget_api.model.Budget;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface BudgetRepository extends JpaRepository<Budget, Long> {
+    // Cached result is dropped by Hibernate whenever the budgets table is written
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "budget-by-user")
+    })
     Optional<Budget> findByUserId(Long userId);
 
-    void deleteByUserId(Long userId);
+    // Category limits are removed explicitly, bulk deletes bypass the element collection mapping.
+    // Declaring the table lets Hibernate evict only the limits cache instead of the whole second level cache.
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "budget_category_limits"))
+    @Query(value = "DELETE FROM budget_category_limits WHERE budget_id IN (SELECT id FROM budgets WHERE user_id = :userId)",
+            nativeQuery = true)
+    int deleteCategoryLimitsByUserId(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("DELETE FROM Budget b WHERE b.user.id = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "budget_category_limits"))
+    @Query(value = "DELETE FROM budget_category_limits WHERE budget_id IN " +
+            "(SELECT b.id FROM budgets b JOIN users u ON u.id = b.user_id WHERE u.role = 'USER')",
+            nativeQuery = true)
+    int deleteCategoryLimitsByUserRoleUser();
+
+    @Modifying
+    @Query("DELETE FROM Budget b WHERE b.user.id IN (SELECT u.id FROM User u WHERE u.role = 'USER')")
+    int deleteAllByUserRoleUser();
+
+    // Budget limits joined with the month's spending rollups, so the status needs a single round trip
+    @Query(value = "SELECT b.total_limit AS \"totalLimit\", b.total_income AS \"totalIncome\", " +
+            "(SELECT COALESCE(SUM(t.total), 0) FROM spending_rollups t " +
+            "WHERE t.user_id = b.user_id AND t.year_month = :month) AS \"totalSpent\", " +
+            "l.category AS \"category\", l.category_limit AS \"categoryLimit\", " +
+            "COALESCE(r.total, 0) AS \"categorySpent\" " +
+            "FROM budgets b " +
+            "LEFT JOIN budget_category_limits l ON l.budget_id = b.id " +
+            "LEFT JOIN spending_rollups r ON r.user_id = b.user_id AND r.year_month = :month AND r.category = l.category " +
+            "WHERE b.user_id = :userId ORDER BY l.category",
+            nativeQuery = true)
+    List<BudgetStatusRow> findStatusByUserId(@Param("userId") Long userId, @Param("month") LocalDate month);
 }
@@ -0,0 +1,27 @@
+package com.lobanmatin.budget_api.repository;
+
+import com.lobanmatin.budget_api.model.CategoryRule;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface CategoryRuleRepository extends JpaRepository<CategoryRule, Long> {
+    List<CategoryRule> findByUserIdOrderById(Long userId);
+
+    List<CategoryRule> findByUserIdIsNullOrderById();
+
+    Optional<CategoryRule> findByIdAndUserId(Long id, Long userId);
+
+    Optional<CategoryRule> findByIdAndUserIdIsNull(Long id);
+
+    long countByUserId(Long userId);
+
+    @Modifying
+    @Query("DELETE FROM CategoryRule r WHERE r.userId IN (SELECT u.id FROM User u WHERE u.role = 'USER')")
+    void deleteAllByUserRoleUser();
+}
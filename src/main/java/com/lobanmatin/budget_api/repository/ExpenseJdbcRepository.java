@@ -0,0 +1,85 @@
+package com.lobanmatin.budget_api.repository;
+
+import com.lobanmatin.budget_api.dto.CategoryChange;
+import com.lobanmatin.budget_api.model.Expense;
+import com.lobanmatin.budget_api.model.ExpenseCategory;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+// Plain JDBC access for bulk writes, Hibernate cannot batch inserts of IDENTITY generated entities.
+@Repository
+public class ExpenseJdbcRepository {
+
+    // Duplicates are filtered by the CSV import before the insert, see ExpenseService
+    private static final String INSERT_EXPENSE =
+            "INSERT INTO expenses (user_id, title, amount, category, date) VALUES (?, ?, ?, ?, ?)";
+
+    // Only moves rows still in the category they were read with, a concurrent change of the same expense wins
+    private static final String UPDATE_CATEGORY =
+            "UPDATE expenses SET category = ? WHERE id = ? AND user_id = ? AND category = ?";
+
+    // One bounded chunk of a background purge, keeps each transaction and its locks short
+    private static final String DELETE_CHUNK =
+            "DELETE FROM expenses WHERE id IN (SELECT id FROM expenses WHERE user_id = ? LIMIT ?) " +
+            "RETURNING date, amount, category";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ExpenseJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Returns the update count of every row
+    public int[] batchInsert(Long userId, List<Expense> expenses) {
+        return jdbcTemplate.batchUpdate(INSERT_EXPENSE, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Expense expense = expenses.get(i);
+                ps.setLong(1, userId);
+                ps.setString(2, expense.getTitle());
+                ps.setBigDecimal(3, expense.getAmount());
+                ps.setString(4, expense.getCategory().name());
+                ps.setDate(5, Date.valueOf(expense.getDate()));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return expenses.size();
+            }
+        });
+    }
+
+    // Returns the date, amount and category of every deleted row, so the rollups can be reduced by the same chunk
+    public List<Expense> deleteChunk(Long userId, int chunkSize) {
+        return jdbcTemplate.query(DELETE_CHUNK, (rs, rowNum) -> Expense.builder()
+                .date(rs.getDate("date").toLocalDate())
+                .amount(rs.getBigDecimal("amount"))
+                .category(ExpenseCategory.valueOf(rs.getString("category")))
+                .build(), userId, chunkSize);
+    }
+
+    // Returns the update count of every change, 0 for expenses deleted or re-categorised in the meantime
+    public int[] batchUpdateCategory(Long userId, List<CategoryChange> changes) {
+        return jdbcTemplate.batchUpdate(UPDATE_CATEGORY, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                CategoryChange change = changes.get(i);
+                ps.setString(1, change.to().name());
+                ps.setLong(2, change.id());
+                ps.setLong(3, userId);
+                ps.setString(4, change.from().name());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return changes.size();
+            }
+        });
+    }
+}
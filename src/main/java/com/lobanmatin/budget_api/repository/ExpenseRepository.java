@@ -1,22 +1,102 @@
 package com.lobanmatin.budget_api.repository;
 
+import com.lobanmatin.budget_api.dto.ExpenseKey;
+import com.lobanmatin.budget_api.dto.ExpenseResponse;
+import com.lobanmatin.budget_api.dto.SpendingTotal;
 import com.lobanmatin.budget_api.model.Expense;
 import com.lobanmatin.budget_api.model.ExpenseCategory;
+import org.springframework.data.domain.Limit;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.time.LocalDate;
-import java.math.BigDecimal;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ExpenseRepository extends JpaRepository<Expense, Long> {
-    List<Expense> findByUserId(Long userId);
-    List<Expense> findByUserIdAndCategory(Long userId, ExpenseCategory category);
-    boolean existsByUserIdAndDateAndAmountAndTitle(Long userId, LocalDate date, BigDecimal amount, String title);
+    // Load only the dedupe columns for a date window, used by the CSV import
+    @Query("SELECT new com.lobanmatin.budget_api.dto.ExpenseKey(e.date, e.amount, e.title) FROM Expense e " +
+            "WHERE e.user.id = :userId AND e.date BETWEEN :from AND :to")
+    List<ExpenseKey> findKeysByUserIdAndDateBetween(@Param("userId") Long userId,
+                                                    @Param("from") LocalDate from,
+                                                    @Param("to") LocalDate to);
 
-    void deleteAllByUserId(Long userId);
+    // Read paths select ExpenseResponse rows directly, the results are never managed so there is
+    // nothing to dirty check and the user association is not touched.
+    // Keyset pagination, rows strictly before the (afterDate, afterId) cursor in (date, id) descending order
+    @Query("SELECT new com.lobanmatin.budget_api.dto.ExpenseResponse(e.id, e.title, e.amount, e.category, e.date) " +
+            "FROM Expense e WHERE e.user.id = :userId AND e.date >= :from " +
+            "AND (e.date < :afterDate OR (e.date = :afterDate AND e.id < :afterId)) " +
+            "ORDER BY e.date DESC, e.id DESC")
+    List<ExpenseResponse> findPageByUserId(@Param("userId") Long userId,
+                                           @Param("from") LocalDate from,
+                                           @Param("afterDate") LocalDate afterDate,
+                                           @Param("afterId") Long afterId,
+                                           Limit limit);
+
+    @Query("SELECT new com.lobanmatin.budget_api.dto.ExpenseResponse(e.id, e.title, e.amount, e.category, e.date) " +
+            "FROM Expense e WHERE e.user.id = :userId AND e.category = :category AND e.date >= :from " +
+            "AND (e.date < :afterDate OR (e.date = :afterDate AND e.id < :afterId)) " +
+            "ORDER BY e.date DESC, e.id DESC")
+    List<ExpenseResponse> findPageByUserIdAndCategory(@Param("userId") Long userId,
+                                                      @Param("category") ExpenseCategory category,
+                                                      @Param("from") LocalDate from,
+                                                      @Param("afterDate") LocalDate afterDate,
+                                                      @Param("afterId") Long afterId,
+                                                      Limit limit);
+
+    // Full export through a forward-only cursor, the fetch size keeps the driver from buffering the whole result.
+    // Must be consumed and closed inside a transaction.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.lobanmatin.budget_api.dto.ExpenseResponse(e.id, e.title, e.amount, e.category, e.date) " +
+            "FROM Expense e WHERE e.user.id = :userId AND e.date BETWEEN :from AND :to " +
+            "AND (:category IS NULL OR e.category = :category) " +
+            "ORDER BY e.date DESC, e.id DESC")
+    Stream<ExpenseResponse> streamByUserId(@Param("userId") Long userId,
+                                           @Param("category") ExpenseCategory category,
+                                           @Param("from") LocalDate from,
+                                           @Param("to") LocalDate to);
+
+    // Spending aggregations, summed in the database so no Expense entities are loaded
+    @Query("SELECT new com.lobanmatin.budget_api.dto.SpendingTotal(e.category, SUM(e.amount), COUNT(e)) " +
+            "FROM Expense e WHERE e.user.id = :userId AND e.date BETWEEN :from AND :to " +
+            "GROUP BY e.category ORDER BY e.category")
+    List<SpendingTotal> sumByCategory(@Param("userId") Long userId,
+                                      @Param("from") LocalDate from,
+                                      @Param("to") LocalDate to);
+
+    @Query("SELECT new com.lobanmatin.budget_api.dto.SpendingTotal(YEAR(e.date), MONTH(e.date), SUM(e.amount), COUNT(e)) " +
+            "FROM Expense e WHERE e.user.id = :userId AND e.date BETWEEN :from AND :to " +
+            "GROUP BY YEAR(e.date), MONTH(e.date) ORDER BY YEAR(e.date), MONTH(e.date)")
+    List<SpendingTotal> sumByMonth(@Param("userId") Long userId,
+                                   @Param("from") LocalDate from,
+                                   @Param("to") LocalDate to);
+
+    @Query("SELECT new com.lobanmatin.budget_api.dto.SpendingTotal(e.category, YEAR(e.date), MONTH(e.date), SUM(e.amount), COUNT(e)) " +
+            "FROM Expense e WHERE e.user.id = :userId AND e.date BETWEEN :from AND :to " +
+            "GROUP BY YEAR(e.date), MONTH(e.date), e.category ORDER BY YEAR(e.date), MONTH(e.date), e.category")
+    List<SpendingTotal> sumByMonthAndCategory(@Param("userId") Long userId,
+                                              @Param("from") LocalDate from,
+                                              @Param("to") LocalDate to);
+
+    long countByUserId(Long userId);
+
+    // Bulk deletes run as single statements instead of loading and deleting every entity
+    @Modifying
+    @Query("DELETE FROM Expense e WHERE e.user.id = :userId")
+    int deleteAllByUserId(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("DELETE FROM Expense e WHERE e.user.id IN (SELECT u.id FROM User u WHERE u.role = 'USER')")
+    int deleteAllByUserRoleUser();
 
     Optional<Expense> findByIdAndUserId(Long expenseId, Long userId);
 }
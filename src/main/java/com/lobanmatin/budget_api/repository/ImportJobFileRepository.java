@@ -0,0 +1,11 @@
+package com.lobanmatin.budget_api.repository;
+
+import com.lobanmatin.budget_api.model.ImportJobFile;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+@Repository
+public interface ImportJobFileRepository extends JpaRepository<ImportJobFile, UUID> {
+}
@@ -0,0 +1,98 @@
+package com.lobanmatin.budget_api.repository;
+
+import com.lobanmatin.budget_api.model.ImportJob;
+import com.lobanmatin.budget_api.model.ImportJobStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.LockOptions;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface ImportJobRepository extends JpaRepository<ImportJob, UUID> {
+    Optional<ImportJob> findByIdAndUserId(UUID id, Long userId);
+
+    @Query("SELECT j.status FROM ImportJob j WHERE j.id = :id")
+    Optional<ImportJobStatus> findStatusById(@Param("id") UUID id);
+
+    // Moves a queued job of this instance to running, returns 0 when it was cancelled or taken over
+    @Modifying
+    @Query("""
+            UPDATE ImportJob j SET j.status = 'RUNNING', j.startedAt = COALESCE(j.startedAt, :now)
+            WHERE j.id = :id AND j.status = 'QUEUED' AND j.owner = :owner
+            """)
+    int claim(@Param("id") UUID id, @Param("owner") String owner, @Param("now") Instant now);
+
+    // Also fences the batch: returns 0 once another instance has taken the job over, and the caller rolls back
+    @Modifying
+    @Query("""
+            UPDATE ImportJob j SET j.rowsProcessed = :rowsProcessed, j.inserted = :inserted,
+                j.duplicates = :duplicates, j.malformed = :malformed, j.skipped = :skipped
+            WHERE j.id = :id AND j.owner = :owner
+            """)
+    int updateProgress(@Param("id") UUID id,
+                       @Param("owner") String owner,
+                       @Param("rowsProcessed") int rowsProcessed,
+                       @Param("inserted") int inserted,
+                       @Param("duplicates") int duplicates,
+                       @Param("malformed") int malformed,
+                       @Param("skipped") int skipped);
+
+    // Only a running job can finish, so a cancellation made meanwhile is kept
+    @Modifying
+    @Query("""
+            UPDATE ImportJob j SET j.status = :status, j.error = :error, j.finishedAt = :now
+            WHERE j.id = :id AND j.status = 'RUNNING' AND j.owner = :owner
+            """)
+    int finish(@Param("id") UUID id,
+               @Param("owner") String owner,
+               @Param("status") ImportJobStatus status,
+               @Param("error") String error,
+               @Param("now") Instant now);
+
+    @Modifying
+    @Query("""
+            UPDATE ImportJob j SET j.status = 'CANCELLED', j.finishedAt = :now
+            WHERE j.id = :id AND j.userId = :userId AND j.status IN ('QUEUED', 'RUNNING')
+            """)
+    int cancel(@Param("id") UUID id, @Param("userId") Long userId, @Param("now") Instant now);
+
+    // Heartbeat of a live instance, keeps other instances from taking over its queued and running jobs
+    @Modifying
+    @Query("""
+            UPDATE ImportJob j SET j.leaseExpiresAt = :leaseExpiresAt
+            WHERE j.owner = :owner AND j.status IN ('QUEUED', 'RUNNING')
+            """)
+    int renewLeases(@Param("owner") String owner, @Param("leaseExpiresAt") Instant leaseExpiresAt);
+
+    // Unfinished jobs whose owner stopped renewing its lease. Rows locked by another instance taking them over,
+    // or by a batch still committing progress, are skipped rather than waited for
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "" + LockOptions.SKIP_LOCKED))
+    @Query("""
+            SELECT j FROM ImportJob j
+            WHERE j.status IN ('QUEUED', 'RUNNING') AND (j.leaseExpiresAt IS NULL OR j.leaseExpiresAt < :now)
+            ORDER BY j.createdAt
+            """)
+    List<ImportJob> lockExpired(@Param("now") Instant now, Limit limit);
+
+    // Gives jobs back, queued without an owner, when this instance cannot run them
+    @Modifying
+    @Query("""
+            UPDATE ImportJob j SET j.owner = NULL, j.leaseExpiresAt = NULL
+            WHERE j.id IN :ids AND j.owner = :owner AND j.status = 'QUEUED'
+            """)
+    int release(@Param("ids") Collection<UUID> ids, @Param("owner") String owner);
+}
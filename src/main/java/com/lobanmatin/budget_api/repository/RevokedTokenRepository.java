@@ -0,0 +1,29 @@
+package com.lobanmatin.budget_api.repository;
+
+import com.lobanmatin.budget_api.model.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, String> {
+    boolean existsByTokenIdAndExpiresAtAfter(String tokenId, Instant now);
+
+    @Query("SELECT t.tokenId FROM RevokedToken t WHERE t.expiresAt > :now")
+    List<String> findActiveTokenIds(@Param("now") Instant now);
+
+    @Query("SELECT t.tokenId FROM RevokedToken t WHERE t.revokedAt >= :since AND t.expiresAt > :now")
+    List<String> findActiveTokenIdsRevokedSince(@Param("since") Instant since, @Param("now") Instant now);
+
+    @Query("SELECT COUNT(t) FROM RevokedToken t WHERE t.expiresAt > :now")
+    long countActive(@Param("now") Instant now);
+
+    @Modifying
+    @Query("DELETE FROM RevokedToken t WHERE t.expiresAt <= :now")
+    int deleteExpired(@Param("now") Instant now);
+}
@@ -0,0 +1,81 @@
+package com.lobanmatin.budget_api.repository;
+
+import com.lobanmatin.budget_api.dto.SpendingTotal;
+import com.lobanmatin.budget_api.model.SpendingRollup;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface SpendingRollupRepository extends JpaRepository<SpendingRollup, SpendingRollup.Key> {
+
+    // Apply a delta to a rollup row, creating it on the first expense of the month and category.
+    // Native writes name their table, otherwise Hibernate clears the whole second level cache after each one.
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "spending_rollups"))
+    @Query(value = "INSERT INTO spending_rollups (user_id, year_month, category, total, expense_count) " +
+            "VALUES (:userId, :yearMonth, :category, :total, :count) " +
+            "ON CONFLICT (user_id, year_month, category) DO UPDATE SET " +
+            "total = spending_rollups.total + EXCLUDED.total, " +
+            "expense_count = spending_rollups.expense_count + EXCLUDED.expense_count",
+            nativeQuery = true)
+    void addToRollup(@Param("userId") Long userId,
+                     @Param("yearMonth") LocalDate yearMonth,
+                     @Param("category") String category,
+                     @Param("total") BigDecimal total,
+                     @Param("count") long count);
+
+    @Modifying
+    @Query("DELETE FROM SpendingRollup r WHERE r.userId = :userId")
+    void deleteAllByUserId(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("DELETE FROM SpendingRollup r WHERE r.userId IN (SELECT u.id FROM User u WHERE u.role = 'USER')")
+    void deleteAllByUserRoleUser();
+
+    // Recompute a user's rollups from their expenses after deleting them. A delta written by a concurrent expense
+    // write after the delete is added to, its expense was not yet committed when the aggregate was read.
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "spending_rollups"))
+    @Query(value = "INSERT INTO spending_rollups (user_id, year_month, category, total, expense_count) " +
+            "SELECT user_id, CAST(DATE_TRUNC('month', date) AS DATE), category, SUM(amount), COUNT(*) " +
+            "FROM expenses WHERE user_id = :userId " +
+            "GROUP BY user_id, CAST(DATE_TRUNC('month', date) AS DATE), category " +
+            "ON CONFLICT (user_id, year_month, category) DO UPDATE SET " +
+            "total = spending_rollups.total + EXCLUDED.total, " +
+            "expense_count = spending_rollups.expense_count + EXCLUDED.expense_count",
+            nativeQuery = true)
+    void insertRollupsFromExpenses(@Param("userId") Long userId);
+
+    // Rollup reads, the range is given as the first days of the first and last months
+    @Query("SELECT new com.lobanmatin.budget_api.dto.SpendingTotal(r.category, SUM(r.total), SUM(r.expenseCount)) " +
+            "FROM SpendingRollup r WHERE r.userId = :userId AND r.yearMonth BETWEEN :from AND :to " +
+            "AND r.expenseCount > 0 GROUP BY r.category ORDER BY r.category")
+    List<SpendingTotal> sumByCategory(@Param("userId") Long userId,
+                                      @Param("from") LocalDate from,
+                                      @Param("to") LocalDate to);
+
+    @Query("SELECT new com.lobanmatin.budget_api.dto.SpendingTotal(YEAR(r.yearMonth), MONTH(r.yearMonth), SUM(r.total), SUM(r.expenseCount)) " +
+            "FROM SpendingRollup r WHERE r.userId = :userId AND r.yearMonth BETWEEN :from AND :to " +
+            "AND r.expenseCount > 0 GROUP BY YEAR(r.yearMonth), MONTH(r.yearMonth) " +
+            "ORDER BY YEAR(r.yearMonth), MONTH(r.yearMonth)")
+    List<SpendingTotal> sumByMonth(@Param("userId") Long userId,
+                                   @Param("from") LocalDate from,
+                                   @Param("to") LocalDate to);
+
+    @Query("SELECT new com.lobanmatin.budget_api.dto.SpendingTotal(r.category, YEAR(r.yearMonth), MONTH(r.yearMonth), r.total, r.expenseCount) " +
+            "FROM SpendingRollup r WHERE r.userId = :userId AND r.yearMonth BETWEEN :from AND :to " +
+            "AND r.expenseCount > 0 ORDER BY r.yearMonth, r.category")
+    List<SpendingTotal> findByMonthAndCategory(@Param("userId") Long userId,
+                                               @Param("from") LocalDate from,
+                                               @Param("to") LocalDate to);
+}
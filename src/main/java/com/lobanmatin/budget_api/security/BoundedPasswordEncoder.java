@@ -0,0 +1,112 @@
+package com.lobanmatin.budget_api.security;
+
+import com.lobanmatin.budget_api.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * BCrypt hashing and verification on a pool of its own, sized to the cores, so a burst of logins cannot take the
+ * CPU from other requests. The calling thread waits for the result, a full queue fails fast with 503.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private static final long RETRY_AFTER_SECONDS = 1;
+
+    private final PasswordEncoder delegate;
+    private final int cost;
+    private final ThreadPoolTaskExecutor executor;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+
+    public BoundedPasswordEncoder(int cost, int threads, int queueCapacity, MeterRegistry meterRegistry) {
+        this(new BCryptPasswordEncoder(cost), cost, threads, queueCapacity, meterRegistry);
+    }
+
+    BoundedPasswordEncoder(PasswordEncoder delegate, int cost, int threads, int queueCapacity,
+                           MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.cost = cost;
+
+        this.executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("bcrypt-");
+        executor.initialize();
+
+        this.encodeTimer = hashTimer(meterRegistry, "encode");
+        this.matchesTimer = hashTimer(meterRegistry, "matches");
+        Gauge.builder("password.hash.queue.size", executor, pool -> pool.getThreadPoolExecutor().getQueue().size())
+                .description("Password hashes waiting for a BCrypt thread")
+                .register(meterRegistry);
+    }
+
+    private static Timer hashTimer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder("password.hash")
+                .description("Time a BCrypt thread spends hashing one password, queueing excluded")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(encodeTimer, () -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(matchesTimer, () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * True when the hash was made with a different cost than the configured one, higher or lower, so that
+     * a successful login stores the password again at the current cost.
+     */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        // $2a$10$..., the cost is the two digits after the version
+        if (encodedPassword == null || encodedPassword.length() < 7 || encodedPassword.charAt(3) != '$') {
+            return false;
+        }
+        try {
+            return Integer.parseInt(encodedPassword.substring(4, 6)) != cost;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private <T> T run(Timer timer, Supplier<T> hashing) {
+        Future<T> result;
+        try {
+            result = executor.submitCompletable(() -> timer.record(hashing));
+        } catch (TaskRejectedException e) {
+            throw new ServiceUnavailableException("Too many logins in progress, try again shortly", RETRY_AFTER_SECONDS);
+        }
+
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.cancel(true);
+            throw new IllegalStateException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+}
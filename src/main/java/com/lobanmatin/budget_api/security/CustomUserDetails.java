@@ -27,6 +27,14 @@ public class CustomUserDetails implements UserDetails {
         this.role = user.getRole();
     }
 
+    // Principal rebuilt from verified token claims, avoids loading the user row on every request
+    public static CustomUserDetails fromClaims(Long id, String email, Role role) {
+        User user = User.withId(id);
+        user.setEmail(email);
+        user.setRole(role);
+        return new CustomUserDetails(user);
+    }
+
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
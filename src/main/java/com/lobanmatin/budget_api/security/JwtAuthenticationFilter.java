@@ -3,9 +3,12 @@ package com.lobanmatin.budget_api.security;
 import com.lobanmatin.budget_api.service.TokenBlacklistService;
 import com.lobanmatin.budget_api.service.CustomUserDetailsService;
 import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.*;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -15,6 +18,7 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
@@ -22,15 +26,35 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private final JwtUtil jwtUtil;
     private final CustomUserDetailsService userDetailsService;
     private final TokenBlacklistService tokenBlacklistService;
+    // Reload the user on every request so role changes and deleted accounts take effect before the token expires
+    private final boolean loadUserFromDb;
+    private final Timer verificationTimer;
+    private final Timer claimsLookupTimer;
+    private final Timer databaseLookupTimer;
 
     public JwtAuthenticationFilter(
             JwtUtil jwtUtil,
             CustomUserDetailsService userDetailsService,
-            TokenBlacklistService tokenBlacklistService
+            TokenBlacklistService tokenBlacklistService,
+            MeterRegistry meterRegistry,
+            @Value("${jwt.load-user-from-db:false}") boolean loadUserFromDb
     ) {
         this.jwtUtil = jwtUtil;
         this.userDetailsService = userDetailsService;
         this.tokenBlacklistService = tokenBlacklistService;
+        this.loadUserFromDb = loadUserFromDb;
+        this.verificationTimer = Timer.builder("jwt.filter.verification")
+                .description("Signature, expiry and blacklist checks of a bearer token")
+                .register(meterRegistry);
+        this.claimsLookupTimer = userLookupTimer(meterRegistry, "claims");
+        this.databaseLookupTimer = userLookupTimer(meterRegistry, "database");
+    }
+
+    private static Timer userLookupTimer(MeterRegistry meterRegistry, String source) {
+        return Timer.builder("jwt.filter.user.lookup")
+                .description("Building the request principal from the token claims or the users table")
+                .tag("source", source)
+                .register(meterRegistry);
     }
 
     @Override
@@ -56,18 +80,27 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             if (authHeader != null && authHeader.startsWith("Bearer ")) {
                 String jwt = authHeader.substring(7);
 
-                if (tokenBlacklistService.isBlacklisted(jwt)) {
+                long verificationStart = System.nanoTime();
+                Optional<Claims> claimsOptional = jwtUtil.validateAndGetClaims(jwt);
+                boolean blacklisted = claimsOptional.isPresent() && tokenBlacklistService.isBlacklisted(claimsOptional.get(), jwt);
+                verificationTimer.record(System.nanoTime() - verificationStart, TimeUnit.NANOSECONDS);
+
+                if (blacklisted) {
                     // Let the AuthenticationEntryPoint handle it
                     throw new SecurityException("Token has been blacklisted");
                 }
 
-                Optional<Claims> claimsOptional = jwtUtil.validateAndGetClaims(jwt);
-
                 if (claimsOptional.isPresent() && SecurityContextHolder.getContext().getAuthentication() == null) {
                     Claims claims = claimsOptional.get();
-                    String email = claims.getSubject();
 
-                    UserDetails userDetails = userDetailsService.loadUserByUsername(email);
+                    // The signature has been verified, so the id and role claims can be trusted as issued
+                    long lookupStart = System.nanoTime();
+                    Optional<CustomUserDetails> tokenUser = loadUserFromDb ? Optional.empty() : jwtUtil.extractUserDetails(claims);
+                    UserDetails userDetails = tokenUser.isPresent()
+                            ? tokenUser.get()
+                            : userDetailsService.loadUserByUsername(claims.getSubject());
+                    (tokenUser.isPresent() ? claimsLookupTimer : databaseLookupTimer)
+                            .record(System.nanoTime() - lookupStart, TimeUnit.NANOSECONDS);
                     UsernamePasswordAuthenticationToken authToken =
                             new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
 
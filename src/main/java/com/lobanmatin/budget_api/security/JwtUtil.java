@@ -1,15 +1,24 @@
 package com.lobanmatin.budget_api.security;
 
+import com.lobanmatin.budget_api.model.Role;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
 import java.util.Date;
 import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 @Component
 public class JwtUtil {
@@ -20,40 +29,122 @@ public class JwtUtil {
     @Value("${jwt.expiration:86400000}")
     private long EXPIRATION_TIME;
 
-    private Key getSignInKey() {
+    // Maximum number of verified tokens remembered by validateAndGetClaims
+    @Value("${jwt.cache.max-size:10000}")
+    private int CACHE_MAX_SIZE;
+
+    // Key and parser are immutable and thread safe, so they are built once at startup
+    private Key signInKey;
+    private JwtParser jwtParser;
+
+    private final Map<String, CachedClaims> verifiedTokens = new ConcurrentHashMap<>();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+
+    @PostConstruct
+    void init() {
         // Decode base 64-encoded secret key into bytes
         byte[] keyBytes = Base64.getDecoder().decode(SECRET_KEY);
-        return Keys.hmacShaKeyFor(keyBytes);
+        signInKey = Keys.hmacShaKeyFor(keyBytes);
+        jwtParser = Jwts.parserBuilder().setSigningKey(signInKey).build();
     }
 
     public String generateToken(Map<String, Object> extraClaims, CustomUserDetails userDetails) {
         return Jwts
                 .builder()
                 .setClaims(extraClaims)
+                .setId(UUID.randomUUID().toString())
                 .setSubject(userDetails.getUsername())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION_TIME))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .signWith(signInKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
     public Claims extractClaims(String token) {
-        return Jwts.parserBuilder().setSigningKey(getSignInKey())
-                .build().parseClaimsJws(token).getBody();
+        return jwtParser.parseClaimsJws(token).getBody();
     }
 
-    // Extract token claims and validate it within one method to avoid repeatedly accessing claims
+    // Extract token claims and validate it within one method to avoid repeatedly accessing claims.
+    // Tokens verified before are served from the cache until they expire. A full cache is only made room in
+    // by the scheduled sweep, until then new tokens are verified without being cached.
     public Optional<Claims> validateAndGetClaims(String token) {
+        String digest = digest(token);
+        CachedClaims cached = verifiedTokens.get(digest);
+        if (cached != null) {
+            if (cached.expiresAt() > System.currentTimeMillis()) {
+                cacheHits.increment();
+                return Optional.of(cached.claims());
+            }
+            verifiedTokens.remove(digest, cached);
+        }
+        cacheMisses.increment();
+
         try {
             Claims claims = extractClaims(token);
+            cache(digest, claims);
             return Optional.of(claims);
         } catch (JwtException e) {
             return Optional.empty();  // Invalid
         }
     }
 
+    // Compact identifier of a token, its jti when present or otherwise a digest of the whole token
+    public String tokenId(Claims claims, String token) {
+        return claims.getId() != null ? claims.getId() : digest(token);
+    }
+
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    public int getCacheSize() {
+        return verifiedTokens.size();
+    }
+
+    // Drops expired tokens off the request path, so a full cache never costs a request a scan of every entry
+    @Scheduled(fixedDelayString = "${jwt.cache.sweep-interval-ms:60000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        verifiedTokens.values().removeIf(entry -> entry.expiresAt() <= now);
+    }
+
+    private void cache(String digest, Claims claims) {
+        if (claims.getExpiration() == null || verifiedTokens.size() >= CACHE_MAX_SIZE) {
+            return;
+        }
+        verifiedTokens.put(digest, new CachedClaims(claims, claims.getExpiration().getTime()));
+    }
+
+    // Cache by digest so raw tokens are never held in memory
+    private static String digest(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record CachedClaims(Claims claims, long expiresAt) {
+    }
+
     public String extractEmail(Claims claims) {
         return claims.getSubject();
     }
 
+    // Build the principal from the claims issued at login, empty for tokens that predate the claims
+    public Optional<CustomUserDetails> extractUserDetails(Claims claims) {
+        Long userId = claims.get("userId", Long.class);
+        String role = claims.get("role", String.class);
+        if (userId == null || role == null) {
+            return Optional.empty();
+        }
+        return Optional.of(CustomUserDetails.fromClaims(userId, claims.getSubject(), Role.valueOf(role)));
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,154 @@
+package com.lobanmatin.budget_api.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lobanmatin.budget_api.util.TokenBucketRateLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket limits per endpoint class. Runs after {@link JwtAuthenticationFilter}, so signed in users get a
+ * bucket of their own and anonymous requests, logins included, share one per client IP.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    enum EndpointClass {
+        AUTH(10, 0.2),
+        READ(200, 50),
+        WRITE(60, 10),
+        IMPORT(5, 0.05);
+
+        private final long defaultCapacity;
+        private final double defaultRefillPerSecond;
+
+        EndpointClass(long defaultCapacity, double defaultRefillPerSecond) {
+            this.defaultCapacity = defaultCapacity;
+            this.defaultRefillPerSecond = defaultRefillPerSecond;
+        }
+
+        String key() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final boolean enabled;
+    private final ObjectMapper objectMapper;
+    private final Map<EndpointClass, TokenBucketRateLimiter> limiters = new EnumMap<>(EndpointClass.class);
+    private final Map<EndpointClass, Counter> rejections = new EnumMap<>(EndpointClass.class);
+
+    public RateLimitFilter(Environment environment,
+                           ObjectMapper objectMapper,
+                           MeterRegistry meterRegistry,
+                           @Value("${rate-limit.enabled:true}") boolean enabled,
+                           @Value("${rate-limit.max-buckets:100000}") int maxBuckets) {
+        this.enabled = enabled;
+        this.objectMapper = objectMapper;
+
+        // rate-limit.<class>.capacity is the burst, rate-limit.<class>.refill-per-second the sustained rate
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            String prefix = "rate-limit." + endpointClass.key();
+            TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(
+                    environment.getProperty(prefix + ".capacity", Long.class, endpointClass.defaultCapacity),
+                    environment.getProperty(prefix + ".refill-per-second", Double.class, endpointClass.defaultRefillPerSecond),
+                    maxBuckets);
+            limiters.put(endpointClass, limiter);
+            rejections.put(endpointClass, Counter.builder("rate.limit.rejections")
+                    .description("Requests answered with 429 because their token bucket was empty")
+                    .tag("class", endpointClass.key())
+                    .register(meterRegistry));
+            Gauge.builder("rate.limit.buckets", limiter, TokenBucketRateLimiter::size)
+                    .description("Token buckets currently held in memory")
+                    .tag("class", endpointClass.key())
+                    .register(meterRegistry);
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getServletPath();
+
+        // API documentation is static and never limited
+        return !enabled
+                || path.startsWith("/v3/api-docs")
+                || path.startsWith("/swagger-ui")
+                || path.equals("/swagger-ui.html")
+                || path.startsWith("/swagger-resources")
+                || path.startsWith("/webjars");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        EndpointClass endpointClass = classify(request);
+        long waitNanos = limiters.get(endpointClass).tryAcquire(clientKey(request));
+        if (waitNanos == 0) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        rejections.get(endpointClass).increment();
+        long retryAfterSeconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("error", "Too Many Requests");
+        body.put("message", "Rate limit exceeded, retry after " + retryAfterSeconds + " seconds.");
+        body.put("status", HttpStatus.TOO_MANY_REQUESTS.value());
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType("application/json;charset=UTF-8");
+        response.getWriter().write(objectMapper.writeValueAsString(body));
+    }
+
+    // Buckets that have refilled hold no state, dropping them keeps memory proportional to recently active clients
+    @Scheduled(fixedDelayString = "${rate-limit.eviction-interval-ms:60000}")
+    public void evictIdleBuckets() {
+        limiters.values().forEach(TokenBucketRateLimiter::evictIdle);
+    }
+
+    static EndpointClass classify(HttpServletRequest request) {
+        String path = request.getServletPath();
+        String method = request.getMethod();
+        if (path.startsWith("/auth")) {
+            return EndpointClass.AUTH;
+        }
+        // Bulk re-categorisation walks the whole account like an import does
+        if ((path.equals("/expenses/upload") || path.equals("/expenses/categorise")) && HttpMethod.POST.matches(method)) {
+            return EndpointClass.IMPORT;
+        }
+        if (HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method) || HttpMethod.OPTIONS.matches(method)) {
+            return EndpointClass.READ;
+        }
+        return EndpointClass.WRITE;
+    }
+
+    private static String clientKey(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof CustomUserDetails user) {
+            return "user:" + user.getId();
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+}
@@ -1,29 +1,42 @@
 package com.lobanmatin.budget_api.service;
 
 import com.lobanmatin.budget_api.dto.BudgetRequest;
+import com.lobanmatin.budget_api.dto.BudgetStatus;
+import com.lobanmatin.budget_api.dto.BudgetStatusRow;
+import com.lobanmatin.budget_api.dto.CategoryStatus;
 import com.lobanmatin.budget_api.exception.ResourceNotFoundException;
 import com.lobanmatin.budget_api.model.Budget;
 import com.lobanmatin.budget_api.model.ExpenseCategory;
 import com.lobanmatin.budget_api.model.User;
 import com.lobanmatin.budget_api.repository.BudgetRepository;
-import jakarta.transaction.Transactional;
 import org.apache.coyote.BadRequestException;
+import org.hibernate.Hibernate;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.YearMonth;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Optional;
 
 @Service
 public class BudgetService {
+    private static final BigDecimal ONE_HUNDRED = BigDecimal.valueOf(100);
+
     private final BudgetRepository budgetRepository;
+    private final DataVersionService dataVersionService;
 
-    public BudgetService(BudgetRepository budgetRepository) {
+    public BudgetService(BudgetRepository budgetRepository, DataVersionService dataVersionService) {
         this.budgetRepository = budgetRepository;
+        this.dataVersionService = dataVersionService;
     }
 
+    @Transactional
     public void createBudget(Long userId, BudgetRequest budgetRequest) {
         if (budgetRepository.findByUserId(userId).isPresent()) {
             throw new DataIntegrityViolationException("Budget already exists for this user, creation unsuccessful.");
@@ -37,8 +50,10 @@ public class BudgetService {
                 .build();
 
         budgetRepository.save(budget);
+        dataVersionService.bump(userId);
     }
 
+    @Transactional(readOnly = true)
     public Budget getBudget(Long userId) {
 
         Optional<Budget> budgetOptional = budgetRepository.findByUserId(userId);
@@ -47,7 +62,50 @@ public class BudgetService {
             throw new ResourceNotFoundException("Budget does not exist for this user.");
         }
 
-        return budgetOptional.get();
+        // Loaded here, the response is written after the session has closed
+        Budget budget = budgetOptional.get();
+        Hibernate.initialize(budget.getCategoryLimits());
+        return budget;
+    }
+
+    /**
+     * Compare the budget limits against this month's spending. Limits and spending come back from one query,
+     * with one row per category limit.
+     */
+    @Transactional(readOnly = true)
+    public BudgetStatus getBudgetStatus(Long userId) {
+        YearMonth period = YearMonth.now();
+        List<BudgetStatusRow> rows = budgetRepository.findStatusByUserId(userId, period.atDay(1));
+
+        if (rows.isEmpty()) {
+            throw new ResourceNotFoundException("Budget does not exist for this user.");
+        }
+
+        List<CategoryStatus> categories = new ArrayList<>();
+        for (BudgetStatusRow row : rows) {
+            // A budget without category limits still yields one row from the outer join
+            if (row.getCategory() == null) {
+                continue;
+            }
+            categories.add(CategoryStatus.builder()
+                    .category(ExpenseCategory.valueOf(row.getCategory()))
+                    .limit(row.getCategoryLimit())
+                    .spent(row.getCategorySpent())
+                    .remaining(remaining(row.getCategoryLimit(), row.getCategorySpent()))
+                    .percentUsed(percentUsed(row.getCategoryLimit(), row.getCategorySpent()))
+                    .build());
+        }
+
+        BudgetStatusRow first = rows.get(0);
+        return BudgetStatus.builder()
+                .period(period)
+                .totalIncome(first.getTotalIncome())
+                .totalLimit(first.getTotalLimit())
+                .totalSpent(first.getTotalSpent())
+                .totalRemaining(remaining(first.getTotalLimit(), first.getTotalSpent()))
+                .totalPercentUsed(percentUsed(first.getTotalLimit(), first.getTotalSpent()))
+                .categories(categories)
+                .build();
     }
 
     @Transactional
@@ -56,9 +114,12 @@ public class BudgetService {
             throw new ResourceNotFoundException("Budget does not exist for this user.");
         }
 
+        budgetRepository.deleteCategoryLimitsByUserId(userId);
         budgetRepository.deleteByUserId(userId);
+        dataVersionService.bump(userId);
     }
 
+    @Transactional
     public void adjustTotalLimit(Long userId, BigDecimal limit) {
         Budget budget = budgetRepository.findByUserId(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("Budget not found for this user."));
@@ -71,8 +132,10 @@ public class BudgetService {
 
         budget.setTotalLimit(limit);
         budgetRepository.save(budget);
+        dataVersionService.bump(userId);
     }
 
+    @Transactional
     public void adjustCategoryLimit(Long userId, String category, BigDecimal limit) {
         Budget budget = budgetRepository.findByUserId(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("Budget not found for this user."));
@@ -89,8 +152,10 @@ public class BudgetService {
 
         budget.getCategoryLimits().put(expenseCategory, limit); // Add or update
         budgetRepository.save(budget);
+        dataVersionService.bump(userId);
     }
 
+    @Transactional
     public void removeLimit(Long userId, ExpenseCategory category) {
         Budget budget = budgetRepository.findByUserId(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("Budget not found for this user."));
@@ -101,5 +166,17 @@ public class BudgetService {
 
         budget.getCategoryLimits().remove(category);
         budgetRepository.save(budget);
+        dataVersionService.bump(userId);
+    }
+
+    private static BigDecimal remaining(BigDecimal limit, BigDecimal spent) {
+        return limit == null ? null : limit.subtract(spent);
+    }
+
+    private static BigDecimal percentUsed(BigDecimal limit, BigDecimal spent) {
+        if (limit == null || limit.signum() == 0) {
+            return null;
+        }
+        return spent.multiply(ONE_HUNDRED).divide(limit, 2, RoundingMode.HALF_UP);
     }
 }
@@ -0,0 +1,172 @@
+package com.lobanmatin.budget_api.service;
+
+import com.lobanmatin.budget_api.dto.CategoryRuleRequest;
+import com.lobanmatin.budget_api.exception.ResourceNotFoundException;
+import com.lobanmatin.budget_api.model.CategoryRule;
+import com.lobanmatin.budget_api.model.ExpenseCategory;
+import com.lobanmatin.budget_api.repository.CategoryRuleRepository;
+import com.lobanmatin.budget_api.repository.UserRepository;
+import com.lobanmatin.budget_api.util.KeywordMatcher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keyword rules that categorise expense titles. Each user's rules are compiled together with the global rules
+ * into one {@link KeywordMatcher}, cached until the rules change on this instance or the entry is older than
+ * the cache TTL, which bounds how long a change made on another instance goes unseen. Every invalidation bumps a
+ * generation, a compile only caches its matcher if no invalidation happened since it started reading rules.
+ */
+@Service
+public class CategoryRuleService {
+
+    // A user's own rule beats a global rule found in the same title
+    private static final int USER_RULE_PRIORITY = 1;
+    private static final int GLOBAL_RULE_PRIORITY = 0;
+
+    private final CategoryRuleRepository ruleRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxRulesPerUser;
+    private final int cacheMaxSize;
+    private final long cacheTtlMs;
+    private final Map<Long, CachedMatcher> matchers = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong globalGeneration = new AtomicLong();
+    private volatile CachedRules globalRules;
+
+    public CategoryRuleService(CategoryRuleRepository ruleRepository,
+                               UserRepository userRepository,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${expense.categorisation.max-rules-per-user:500}") int maxRulesPerUser,
+                               @Value("${expense.categorisation.cache.max-size:10000}") int cacheMaxSize,
+                               @Value("${expense.categorisation.cache.ttl-ms:60000}") long cacheTtlMs) {
+        this.ruleRepository = ruleRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.maxRulesPerUser = maxRulesPerUser;
+        this.cacheMaxSize = cacheMaxSize;
+        this.cacheTtlMs = cacheTtlMs;
+    }
+
+    /**
+     * Matcher over the user's and the global rules, returns null for titles no rule matches.
+     */
+    public KeywordMatcher<ExpenseCategory> getMatcher(Long userId) {
+        long now = System.currentTimeMillis();
+        CachedMatcher cached = matchers.get(userId);
+        if (cached != null && cached.expiresAt() > now) {
+            return cached.matcher();
+        }
+
+        long started = generation.get();
+        KeywordMatcher.Builder<ExpenseCategory> builder = KeywordMatcher.builder();
+        for (CategoryRule rule : ruleRepository.findByUserIdOrderById(userId)) {
+            builder.add(rule.getKeyword(), USER_RULE_PRIORITY, rule.getCategory());
+        }
+        for (CategoryRule rule : getGlobalRules(now)) {
+            builder.add(rule.getKeyword(), GLOBAL_RULE_PRIORITY, rule.getCategory());
+        }
+        KeywordMatcher<ExpenseCategory> matcher = builder.build();
+
+        // A full cache is only made room in by the scheduled sweep, until then new matchers are not cached.
+        // Atomic with a concurrent remove of the same user, which bumps the generation first.
+        if (matchers.size() < cacheMaxSize) {
+            matchers.compute(userId, (id, current) -> generation.get() == started
+                    ? new CachedMatcher(matcher, now + cacheTtlMs)
+                    : current);
+        }
+        return matcher;
+    }
+
+    // Drops expired matchers off the request path
+    @Scheduled(fixedDelayString = "${expense.categorisation.cache.sweep-interval-ms:60000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        matchers.values().removeIf(entry -> entry.expiresAt() <= now);
+    }
+
+    public List<CategoryRule> getRules(Long userId) {
+        return ruleRepository.findByUserIdOrderById(userId);
+    }
+
+    public List<CategoryRule> getGlobalRules() {
+        return ruleRepository.findByUserIdIsNullOrderById();
+    }
+
+    // Saved in its own transaction, so the cache is only dropped once the new rule is visible to the next compile.
+    // The user row lock makes the limit check and the save atomic across concurrent requests and instances.
+    public CategoryRule addRule(Long userId, CategoryRuleRequest request) {
+        CategoryRule rule = transactionTemplate.execute(status -> {
+            userRepository.lockById(userId).orElseThrow(() -> new ResourceNotFoundException("User not found."));
+            if (ruleRepository.countByUserId(userId) >= maxRulesPerUser) {
+                throw new IllegalArgumentException("A user can have at most " + maxRulesPerUser + " category rules");
+            }
+            return ruleRepository.save(toRule(userId, request));
+        });
+        invalidate(userId);
+        return rule;
+    }
+
+    public void deleteRule(Long userId, Long ruleId) {
+        CategoryRule rule = ruleRepository.findByIdAndUserId(ruleId, userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Category rule not found"));
+        ruleRepository.delete(rule);
+        invalidate(userId);
+    }
+
+    public CategoryRule addGlobalRule(CategoryRuleRequest request) {
+        CategoryRule rule = ruleRepository.save(toRule(null, request));
+        invalidateAll();
+        return rule;
+    }
+
+    public void deleteGlobalRule(Long ruleId) {
+        CategoryRule rule = ruleRepository.findByIdAndUserIdIsNull(ruleId)
+                .orElseThrow(() -> new ResourceNotFoundException("Category rule not found"));
+        ruleRepository.delete(rule);
+        invalidateAll();
+    }
+
+    // Rules read before the last global change are never served, even if they were stored after it
+    private List<CategoryRule> getGlobalRules(long now) {
+        CachedRules cached = globalRules;
+        if (cached == null || cached.expiresAt() <= now || cached.generation() != globalGeneration.get()) {
+            long started = globalGeneration.get();
+            cached = new CachedRules(ruleRepository.findByUserIdIsNullOrderById(), now + cacheTtlMs, started);
+            globalRules = cached;
+        }
+        return cached.rules();
+    }
+
+    private void invalidate(Long userId) {
+        generation.incrementAndGet();
+        matchers.remove(userId);
+    }
+
+    private void invalidateAll() {
+        globalGeneration.incrementAndGet();
+        generation.incrementAndGet();
+        matchers.clear();
+    }
+
+    private static CategoryRule toRule(Long userId, CategoryRuleRequest request) {
+        return CategoryRule.builder()
+                .userId(userId)
+                .keyword(request.getKeyword().trim())
+                .category(request.getCategory())
+                .build();
+    }
+
+    private record CachedMatcher(KeywordMatcher<ExpenseCategory> matcher, long expiresAt) {
+    }
+
+    private record CachedRules(List<CategoryRule> rules, long expiresAt, long generation) {
+    }
+}
@@ -4,12 +4,15 @@ import com.lobanmatin.budget_api.model.User;
 import com.lobanmatin.budget_api.repository.UserRepository;
 import com.lobanmatin.budget_api.security.CustomUserDetails;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     @Autowired
     private UserRepository userRepository;
@@ -21,4 +24,15 @@ public class CustomUserDetailsService implements UserDetailsService {
 
         return new CustomUserDetails(user);
     }
+
+    // Called by the authentication provider after a successful login when the stored hash used another BCrypt cost
+    @Override
+    @Transactional
+    public CustomUserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        User user = userRepository.findByEmail(userDetails.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException("User with the following email not found: " + userDetails.getUsername()));
+        user.setPassword(newPassword);
+
+        return new CustomUserDetails(user);
+    }
 }
\ No newline at end of file
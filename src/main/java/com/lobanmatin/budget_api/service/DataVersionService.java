@@ -0,0 +1,56 @@
+package com.lobanmatin.budget_api.service;
+
+import com.lobanmatin.budget_api.repository.UserDataVersionRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+/**
+ * Per user data version behind the ETags of GET /budget and GET /expenses. Writes bump the version in their
+ * own transaction, so the new version becomes visible together with the data it describes.
+ */
+@Service
+public class DataVersionService {
+
+    private final UserDataVersionRepository dataVersionRepository;
+
+    public DataVersionService(UserDataVersionRepository dataVersionRepository) {
+        this.dataVersionRepository = dataVersionRepository;
+    }
+
+    /**
+     * Weak ETag for the user's current data, empty for users without a version row, who are always served in full.
+     * Weak because JSON, CBOR, Smile and protobuf responses of the same version share it while differing in bytes.
+     * Read it before the data: a write in between then only costs the client one extra full response. Read-only
+     * like the data reads, so with a replica both come from the same copy and the ETag never runs ahead of the data.
+     */
+    @Transactional(readOnly = true)
+    public Optional<String> getETag(Long userId) {
+        return dataVersionRepository.findVersionByUserId(userId)
+                .map(version -> "W/\"" + userId + "-" + version + "\"");
+    }
+
+    // Current version, null for users without a version row
+    @Transactional(readOnly = true)
+    public Long getVersion(Long userId) {
+        return dataVersionRepository.findVersionByUserId(userId).orElse(null);
+    }
+
+    // Joins the caller's transaction, the row lock serialises concurrent writes of the same user
+    @Transactional
+    public void bump(Long userId) {
+        dataVersionRepository.increment(userId);
+    }
+
+    /**
+     * Bumps the version like {@link #bump} and returns the new one, null for users without a version row. The
+     * caller holds the row lock until it commits, so a result other than the version it last saw plus one means
+     * another write of the user committed in between.
+     */
+    @Transactional
+    public Long bumpAndGet(Long userId) {
+        bump(userId);
+        return getVersion(userId);
+    }
+}
@@ -0,0 +1,52 @@
+package com.lobanmatin.budget_api.service;
+
+import com.lobanmatin.budget_api.model.RevokedToken;
+import com.lobanmatin.budget_api.repository.RevokedTokenRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+
+@Component
+@ConditionalOnProperty(name = "jwt.blacklist.store", havingValue = "database")
+public class DatabaseTokenBlacklistStore implements TokenBlacklistStore {
+
+    private final RevokedTokenRepository revokedTokenRepository;
+
+    public DatabaseTokenBlacklistStore(RevokedTokenRepository revokedTokenRepository) {
+        this.revokedTokenRepository = revokedTokenRepository;
+    }
+
+    @Override
+    public void add(String tokenId, Instant expiresAt) {
+        revokedTokenRepository.save(new RevokedToken(tokenId, expiresAt, Instant.now()));
+    }
+
+    @Override
+    public boolean contains(String tokenId, Instant now) {
+        return revokedTokenRepository.existsByTokenIdAndExpiresAtAfter(tokenId, now);
+    }
+
+    @Override
+    public Collection<String> activeTokenIds(Instant now) {
+        return revokedTokenRepository.findActiveTokenIds(now);
+    }
+
+    @Override
+    public Collection<String> activeTokenIdsRevokedSince(Instant since, Instant now) {
+        return revokedTokenRepository.findActiveTokenIdsRevokedSince(since, now);
+    }
+
+    @Override
+    @Transactional
+    public void purgeExpired(Instant now) {
+        revokedTokenRepository.deleteExpired(now);
+    }
+
+    @Override
+    public long size(Instant now) {
+        return revokedTokenRepository.countActive(now);
+    }
+}
@@ -0,0 +1,224 @@
+package com.lobanmatin.budget_api.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.lobanmatin.budget_api.dto.ExpenseResponse;
+import com.lobanmatin.budget_api.model.ExpenseCategory;
+import com.lobanmatin.budget_api.model.ExportFormat;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes a user's full expense history to a response stream as the rows are read, for clients that
+ * need everything at once instead of paging.
+ */
+@Service
+public class ExpenseExportService {
+
+    // Output goes through buffers of this size, so a write reaches the response every BUFFER_SIZE bytes
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ExpenseService expenseService;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter expenseWriter;
+    private final int rowGroupSize;
+
+    public ExpenseExportService(ExpenseService expenseService,
+                                ObjectMapper objectMapper,
+                                @Value("${expense.export.row-group-size:10000}") int rowGroupSize) {
+        this.expenseService = expenseService;
+        this.objectMapper = objectMapper;
+        // Output is flushed by the generator buffer filling up, not after every expense
+        this.expenseWriter = objectMapper.writerFor(ExpenseResponse.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.rowGroupSize = rowGroupSize;
+    }
+
+    /**
+     * Write the expenses as newline delimited JSON, one object per line. The output stream is left open.
+     */
+    public void writeNdjson(Long userId, ExpenseCategory category, LocalDate from, LocalDate to,
+                            OutputStream out) throws IOException {
+        try (JsonGenerator generator = createGenerator(out)) {
+            streamExpenses(userId, category, from, to, expense -> {
+                expenseWriter.writeValue(generator, expense);
+                generator.writeRaw('\n');
+            });
+        }
+    }
+
+    /**
+     * Write the expenses as a file download in the given format, gzip compressed when asked.
+     * The output stream is left open.
+     */
+    public void writeExport(Long userId, ExportFormat format, boolean gzip, ExpenseCategory category,
+                            LocalDate from, LocalDate to, OutputStream out) throws IOException {
+        OutputStream target = new UnclosedOutputStream(out);
+        try (OutputStream stream = gzip ? new GZIPOutputStream(target, BUFFER_SIZE) : target) {
+            switch (format) {
+                case CSV -> writeCsv(userId, category, from, to, stream);
+                case COLUMNAR -> writeColumnar(userId, category, from, to, stream);
+            }
+        }
+    }
+
+    private void writeCsv(Long userId, ExpenseCategory category, LocalDate from, LocalDate to,
+                          OutputStream out) throws IOException {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            writer.write("Date,Amount,Title\n");
+            streamExpenses(userId, category, from, to, expense -> {
+                writeCsvDate(writer, expense.date());
+                writer.write(',');
+                writer.write(expense.amount().toPlainString());
+                writer.write(',');
+                writeCsvField(writer, expense.title());
+                writer.write('\n');
+            });
+        }
+    }
+
+    private void writeColumnar(Long userId, ExpenseCategory category, LocalDate from, LocalDate to,
+                               OutputStream out) throws IOException {
+        List<ExpenseResponse> rowGroup = new ArrayList<>(rowGroupSize);
+        try (JsonGenerator generator = createGenerator(out)) {
+            streamExpenses(userId, category, from, to, expense -> {
+                rowGroup.add(expense);
+                if (rowGroup.size() == rowGroupSize) {
+                    writeRowGroup(generator, rowGroup);
+                    rowGroup.clear();
+                }
+            });
+            if (!rowGroup.isEmpty()) {
+                writeRowGroup(generator, rowGroup);
+            }
+        }
+    }
+
+    // Values of one column sit next to each other, which is what lets repeated categories and dates compress well
+    private static void writeRowGroup(JsonGenerator generator, List<ExpenseResponse> rows) throws IOException {
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("id");
+        for (ExpenseResponse row : rows) {
+            generator.writeNumber(row.id());
+        }
+        generator.writeEndArray();
+        generator.writeArrayFieldStart("date");
+        for (ExpenseResponse row : rows) {
+            generator.writeString(row.date().toString());
+        }
+        generator.writeEndArray();
+        generator.writeArrayFieldStart("amount");
+        for (ExpenseResponse row : rows) {
+            generator.writeNumber(row.amount());
+        }
+        generator.writeEndArray();
+        generator.writeArrayFieldStart("category");
+        for (ExpenseResponse row : rows) {
+            generator.writeString(row.category().name());
+        }
+        generator.writeEndArray();
+        generator.writeArrayFieldStart("title");
+        for (ExpenseResponse row : rows) {
+            generator.writeString(row.title());
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    // Day first, the date order of the DEFAULT upload profile
+    private static void writeCsvDate(Writer writer, LocalDate date) throws IOException {
+        int day = date.getDayOfMonth();
+        int month = date.getMonthValue();
+        if (day < 10) {
+            writer.write('0');
+        }
+        writer.write(Integer.toString(day));
+        writer.write(month < 10 ? "/0" : "/");
+        writer.write(Integer.toString(month));
+        writer.write('/');
+        writer.write(Integer.toString(date.getYear()));
+    }
+
+    // RFC 4180 quoting, only when the value contains a separator, quote or line break
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    private JsonGenerator createGenerator(OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+        return generator;
+    }
+
+    @FunctionalInterface
+    private interface ExpenseWriter {
+        void write(ExpenseResponse expense) throws IOException;
+    }
+
+    private void streamExpenses(Long userId, ExpenseCategory category, LocalDate from, LocalDate to,
+                                ExpenseWriter writer) throws IOException {
+        try {
+            expenseService.streamExpenses(userId, category, from, to, expense -> {
+                try {
+                    writer.write(expense);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // Usually the client going away mid export
+            throw e.getCause();
+        }
+    }
+
+    // Lets the writers and the gzip stream be closed to finish them without closing the response itself
+    private static class UnclosedOutputStream extends FilterOutputStream {
+        UnclosedOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
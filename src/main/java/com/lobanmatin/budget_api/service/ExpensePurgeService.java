@@ -0,0 +1,50 @@
+package com.lobanmatin.budget_api.service;
+
+import com.lobanmatin.budget_api.model.Expense;
+import com.lobanmatin.budget_api.repository.ExpenseJdbcRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Deletes the expenses of very large accounts in the background. Each chunk commits on its own together
+ * with its rollup deltas, so no single transaction holds row locks on the whole account and the rollups
+ * match the remaining expenses between chunks.
+ */
+@Service
+public class ExpensePurgeService {
+
+    private final ExpenseJdbcRepository expenseJdbcRepository;
+    private final SpendingRollupService rollupService;
+    private final DataVersionService dataVersionService;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public ExpensePurgeService(ExpenseJdbcRepository expenseJdbcRepository,
+                               SpendingRollupService rollupService,
+                               DataVersionService dataVersionService,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${expense.purge.chunk-size:5000}") int chunkSize) {
+        this.expenseJdbcRepository = expenseJdbcRepository;
+        this.rollupService = rollupService;
+        this.dataVersionService = dataVersionService;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkSize = chunkSize;
+    }
+
+    @Async
+    public void purgeAllExpenses(Long userId) {
+        int deleted;
+        do {
+            deleted = transactionTemplate.execute(status -> {
+                dataVersionService.bump(userId);
+                List<Expense> expenses = expenseJdbcRepository.deleteChunk(userId, chunkSize);
+                rollupService.removeAll(userId, expenses);
+                return expenses.size();
+            });
+        } while (deleted >= chunkSize);
+    }
+}
@@ -1,35 +1,88 @@
 package com.lobanmatin.budget_api.service;
 
+import com.lobanmatin.budget_api.dto.CategorisationReport;
+import com.lobanmatin.budget_api.dto.CategoryChange;
+import com.lobanmatin.budget_api.dto.ExpenseCursor;
+import com.lobanmatin.budget_api.dto.ExpenseKey;
+import com.lobanmatin.budget_api.dto.ExpensePage;
 import com.lobanmatin.budget_api.dto.ExpenseRequest;
+import com.lobanmatin.budget_api.dto.ExpenseResponse;
+import com.lobanmatin.budget_api.dto.ImportReport;
+import com.lobanmatin.budget_api.dto.SpendingTotal;
 import com.lobanmatin.budget_api.model.User;
 import com.lobanmatin.budget_api.exception.ResourceNotFoundException;
 import com.lobanmatin.budget_api.model.Expense;
+import com.lobanmatin.budget_api.model.CsvProfile;
 import com.lobanmatin.budget_api.model.ExpenseCategory;
+import com.lobanmatin.budget_api.repository.ExpenseJdbcRepository;
 import com.lobanmatin.budget_api.repository.ExpenseRepository;
 import com.lobanmatin.budget_api.security.CustomUserDetails;
-import jakarta.transaction.Transactional;
+import com.lobanmatin.budget_api.util.CsvReader;
+import com.lobanmatin.budget_api.util.KeywordMatcher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class ExpenseService {
 
+    // Open ended date filters, kept within the range every supported database can store
+    private static final LocalDate EARLIEST_DATE = LocalDate.of(1, 1, 1);
+    private static final LocalDate LATEST_DATE = LocalDate.of(9999, 12, 31);
+
     private final ExpenseRepository expenseRepository;
+    private final ExpenseJdbcRepository expenseJdbcRepository;
+    private final SpendingRollupService rollupService;
+    private final ExpensePurgeService expensePurgeService;
+    private final DataVersionService dataVersionService;
+    private final CategoryRuleService categoryRuleService;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final int importBatchSize;
+    private final long purgeThreshold;
 
-    public ExpenseService(ExpenseRepository expenseRepository) {
+    public ExpenseService(ExpenseRepository expenseRepository,
+                          ExpenseJdbcRepository expenseJdbcRepository,
+                          SpendingRollupService rollupService,
+                          ExpensePurgeService expensePurgeService,
+                          DataVersionService dataVersionService,
+                          CategoryRuleService categoryRuleService,
+                          TransactionTemplate transactionTemplate,
+                          @Value("${expense.import.batch-size:500}") int importBatchSize,
+                          @Value("${expense.purge.threshold:50000}") long purgeThreshold) {
         this.expenseRepository = expenseRepository;
+        this.expenseJdbcRepository = expenseJdbcRepository;
+        this.rollupService = rollupService;
+        this.expensePurgeService = expensePurgeService;
+        this.dataVersionService = dataVersionService;
+        this.categoryRuleService = categoryRuleService;
+        this.transactionTemplate = transactionTemplate;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.importBatchSize = importBatchSize;
+        this.purgeThreshold = purgeThreshold;
     }
 
+    @Transactional
     public void createExpense(ExpenseRequest expenseRequest) {
         // Default category to N/A
         ExpenseCategory category = ExpenseCategory.NA;
@@ -42,18 +95,97 @@ public class ExpenseService {
                 .user(User.withId(getCurrentUserId()))
                 .build();
 
+        // Every expense write takes the data version lock first, the CSV import relies on it to see concurrent writes
+        dataVersionService.bump(expense.getUser().getId());
         expenseRepository.save(expense);
+        rollupService.add(expense.getUser().getId(), expense.getDate(), category, expense.getAmount(), 1);
+    }
+
+    /**
+     * Fetch one page of the user's expenses, newest first. Pages are addressed by a cursor on (date, id)
+     * so every page is an index range scan, however deep into the history it is.
+     */
+    @Transactional(readOnly = true)
+    public ExpensePage getExpensePage(ExpenseCategory category, LocalDate from, LocalDate to, String after, int limit) {
+        LocalDate lowerBound = from != null ? from : EARLIEST_DATE;
+        LocalDate upperBound = to != null ? to : LATEST_DATE;
+        if (lowerBound.isAfter(upperBound)) {
+            throw new IllegalArgumentException("'from' must not be after 'to'");
+        }
+
+        // The first page starts just past the upper bound, a cursor must come from a page of the same range
+        ExpenseCursor cursor = new ExpenseCursor(upperBound.plusDays(1), 0L);
+        if (after != null) {
+            cursor = ExpenseCursor.decode(after);
+            if (cursor.date().isBefore(lowerBound) || cursor.date().isAfter(upperBound)) {
+                throw new IllegalArgumentException("'after' cursor is outside the requested date range");
+            }
+        }
+
+        // Fetch one extra row to find out whether another page follows
+        Long userId = getCurrentUserId();
+        Limit fetchLimit = Limit.of(limit + 1);
+        List<ExpenseResponse> expenses = category == null
+                ? expenseRepository.findPageByUserId(userId, lowerBound, cursor.date(), cursor.id(), fetchLimit)
+                : expenseRepository.findPageByUserIdAndCategory(userId, category, lowerBound, cursor.date(), cursor.id(), fetchLimit);
+
+        String nextCursor = null;
+        if (expenses.size() > limit) {
+            expenses = expenses.subList(0, limit);
+            ExpenseResponse last = expenses.get(limit - 1);
+            nextCursor = new ExpenseCursor(last.date(), last.id()).encode();
+        }
+        return new ExpensePage(expenses, nextCursor);
     }
 
-    public List<Expense> getAllExpenses() {
-        // Identify user id through authentication context to avoid additional db calls
-        return expenseRepository.findByUserId(getCurrentUserId());
+    /**
+     * Pass every expense of the user in the date range to the consumer, newest first. Rows are read through a
+     * cursor in one read-only transaction and never collected, so memory stays flat however long the history is.
+     */
+    public void streamExpenses(Long userId, ExpenseCategory category, LocalDate from, LocalDate to,
+                               Consumer<ExpenseResponse> consumer) {
+        LocalDate lowerBound = from != null ? from : EARLIEST_DATE;
+        LocalDate upperBound = to != null ? to : LATEST_DATE;
+        if (lowerBound.isAfter(upperBound)) {
+            throw new IllegalArgumentException("'from' must not be after 'to'");
+        }
+
+        readOnlyTransactionTemplate.executeWithoutResult(status -> {
+            try (Stream<ExpenseResponse> expenses = expenseRepository.streamByUserId(userId, category, lowerBound, upperBound)) {
+                expenses.forEach(consumer);
+            }
+        });
     }
 
-    public List<Expense> getExpensesByCategory(ExpenseCategory category) {
-        return expenseRepository.findByUserIdAndCategory(getCurrentUserId(), category);
+    /**
+     * Total the user's spending between two dates, grouped by category, calendar month or both.
+     * Defaults to the current calendar month when no dates are given. Ranges made of whole months
+     * are read from the rollups, other ranges are aggregated from the expenses themselves.
+     */
+    @Transactional(readOnly = true)
+    public List<SpendingTotal> getSpendingSummary(LocalDate from, LocalDate to, boolean byCategory, boolean byMonth) {
+        YearMonth currentMonth = YearMonth.now();
+        LocalDate lowerBound = from != null ? from : currentMonth.atDay(1);
+        LocalDate upperBound = to != null ? to : currentMonth.atEndOfMonth();
+        if (lowerBound.isAfter(upperBound)) {
+            throw new IllegalArgumentException("'from' must not be after 'to'");
+        }
+
+        Long userId = getCurrentUserId();
+        if (lowerBound.getDayOfMonth() == 1 && upperBound.equals(YearMonth.from(upperBound).atEndOfMonth())) {
+            return rollupService.getTotals(userId, YearMonth.from(lowerBound), YearMonth.from(upperBound),
+                    byCategory, byMonth);
+        }
+
+        if (byCategory && byMonth) {
+            return expenseRepository.sumByMonthAndCategory(userId, lowerBound, upperBound);
+        } else if (byMonth) {
+            return expenseRepository.sumByMonth(userId, lowerBound, upperBound);
+        }
+        return expenseRepository.sumByCategory(userId, lowerBound, upperBound);
     }
 
+    @Transactional
     public void deleteExpenseById(Long id) {
         Long userId = getCurrentUserId();
         Expense expense = expenseRepository.findById(id)
@@ -61,55 +193,193 @@ public class ExpenseService {
         if (!expense.getUser().getId().equals(userId)) {
             throw new SecurityException("Not authorized to delete this expense");
         }
+        dataVersionService.bump(userId);
         expenseRepository.deleteById(id);
+        rollupService.add(userId, expense.getDate(), expense.getCategory(), expense.getAmount().negate(), -1);
     }
 
+    /**
+     * Delete all of the user's expenses. Accounts above the purge threshold are purged in the background
+     * in bounded chunks, in which case this returns false before the expenses are gone.
+     */
     @Transactional
-    public void deleteAllExpenses() {
-        expenseRepository.deleteAllByUserId(getCurrentUserId());
+    public boolean deleteAllExpenses() {
+        Long userId = getCurrentUserId();
+        if (expenseRepository.countByUserId(userId) > purgeThreshold) {
+            expensePurgeService.purgeAllExpenses(userId);
+            return false;
+        }
+
+        dataVersionService.bump(userId);
+        expenseRepository.deleteAllByUserId(userId);
+        rollupService.deleteAll(userId);
+        return true;
     }
 
+    @Transactional
     public void updateCategory(Long expenseId, Long userId, String category) {
         Expense expense = expenseRepository.findByIdAndUserId(expenseId, userId)
                 .orElseThrow(() -> new ResourceNotFoundException("Expense not found"));
 
+        ExpenseCategory previousCategory = expense.getCategory();
         ExpenseCategory categoryEnum = ExpenseCategory.fromString(category);
+        dataVersionService.bump(userId);
         expense.setCategory(categoryEnum);
         expenseRepository.save(expense);
+
+        if (previousCategory != categoryEnum) {
+            // Move the expense between rollups
+            rollupService.add(userId, expense.getDate(), previousCategory, expense.getAmount().negate(), -1);
+            rollupService.add(userId, expense.getDate(), categoryEnum, expense.getAmount(), 1);
+        }
     }
 
-    public void uploadExpensesFromCSV(MultipartFile file) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("d/MM/yyyy");
+    /**
+     * Run the user's and the global category rules over the user's expenses, by default only those still
+     * uncategorised. Expenses no rule matches keep their category. Works through the expenses in chunks of
+     * the import batch size, each chunk is read, updated and moved between rollups in one transaction.
+     */
+    public CategorisationReport recategoriseExpenses(Long userId, boolean uncategorisedOnly) {
+        KeywordMatcher<ExpenseCategory> matcher = categoryRuleService.getMatcher(userId);
+        if (matcher.size() == 0) {
+            return new CategorisationReport(0, 0);
+        }
+
+        int examined = 0;
+        int updated = 0;
+        ExpenseCursor cursor = new ExpenseCursor(LATEST_DATE.plusDays(1), 0L);
+        while (cursor != null) {
+            ExpenseCursor after = cursor;
+            RecategorisedChunk chunk = transactionTemplate.execute(status -> {
+                Limit limit = Limit.of(importBatchSize);
+                List<ExpenseResponse> expenses = uncategorisedOnly
+                        ? expenseRepository.findPageByUserIdAndCategory(userId, ExpenseCategory.NA, EARLIEST_DATE,
+                                after.date(), after.id(), limit)
+                        : expenseRepository.findPageByUserId(userId, EARLIEST_DATE, after.date(), after.id(), limit);
 
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(file.getInputStream()))) {
-            String line;
+                List<CategoryChange> changes = new ArrayList<>();
+                for (ExpenseResponse expense : expenses) {
+                    ExpenseCategory category = matcher.find(expense.title());
+                    if (category != null && category != expense.category()) {
+                        changes.add(new CategoryChange(expense.id(), expense.date(), expense.amount(),
+                                expense.category(), category));
+                    }
+                }
+
+                List<CategoryChange> applied = new ArrayList<>(changes.size());
+                if (!changes.isEmpty()) {
+                    dataVersionService.bump(userId);
+                    int[] counts = expenseJdbcRepository.batchUpdateCategory(userId, changes);
+                    for (int i = 0; i < counts.length; i++) {
+                        if (counts[i] != 0) {
+                            applied.add(changes.get(i));
+                        }
+                    }
+                }
+                if (!applied.isEmpty()) {
+                    rollupService.moveAll(userId, applied);
+                }
+
+                ExpenseCursor next = null;
+                if (expenses.size() == importBatchSize) {
+                    ExpenseResponse last = expenses.get(expenses.size() - 1);
+                    next = new ExpenseCursor(last.date(), last.id());
+                }
+                return new RecategorisedChunk(expenses.size(), applied.size(), next);
+            });
+            examined += chunk.examined();
+            updated += chunk.updated();
+            cursor = chunk.next();
+        }
+        return new CategorisationReport(examined, updated);
+    }
+
+    /**
+     * Import expenses from a CSV file in a single streaming pass. Rows are buffered and written in
+     * JDBC batches, duplicates are detected against the keys already stored for the dates covered by the file.
+     * Only the import dedupes, expenses created one by one may repeat an existing date, amount and title.
+     * Rows are categorised by the user's and the global category rules, rows no rule matches are stored as N/A.
+     */
+    public ImportReport uploadExpensesFromCSV(Long userId, MultipartFile file) {
+        return uploadExpensesFromCSV(userId, file, null);
+    }
+
+    // Without a profile the format is detected from the header row, falling back to DEFAULT
+    public ImportReport uploadExpensesFromCSV(Long userId, MultipartFile file, CsvProfile profile) {
+        try (InputStream in = file.getInputStream()) {
+            return importExpenses(userId, in, profile, new ImportReport(), 0, ImportProgressListener.NONE);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read CSV file", e);
+        }
+    }
 
-            while ((line = reader.readLine()) != null) {
-                String[] values = line.split(",");
-                if (values.length < 3) {
-                    // Skip malformed lines
+    /**
+     * Import the rows after resumeAfterLine, adding to the counts already in the report. Used directly by
+     * background import jobs, which resume from the last committed batch after a restart.
+     */
+    public ImportReport importExpenses(Long userId, InputStream in, CsvProfile profile, ImportReport report,
+                                       int resumeAfterLine, ImportProgressListener listener) throws IOException {
+        CsvImport csvImport = new CsvImport(userId, report, listener);
+
+        try (CsvReader reader = new CsvReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            CsvProfile format = profile;
+            boolean firstRecord = true;
+            int lastLine = resumeAfterLine;
+
+            while (reader.next()) {
+                int lineNumber = reader.lineNumber();
+                lastLine = Math.max(lastLine, lineNumber);
+                if (reader.isBlankRecord()) {
+                    continue;
+                }
+                // Without a profile, a first row that cannot be parsed is the header of an unknown format.
+                // A selected profile only skips its own header, any other bad first row is malformed.
+                boolean unknownHeader = false;
+                if (firstRecord) {
+                    firstRecord = false;
+                    if (format == null) {
+                        CsvProfile detected = CsvProfile.detect(reader);
+                        if (detected != null) {
+                            format = detected;
+                            continue;
+                        }
+                        format = CsvProfile.DEFAULT;
+                        unknownHeader = true;
+                    } else if (format.matchesHeader(reader)) {
+                        continue;
+                    }
+                }
+                if (lineNumber <= resumeAfterLine) {
                     continue;
                 }
 
                 try {
-                    LocalDate date = LocalDate.parse(values[0].trim(), formatter);
-                    BigDecimal amount = new BigDecimal(values[1].trim()).abs();
-                    String title = values[2].trim();
+                    if (reader.fieldCount() < format.getColumnCount()) {
+                        throw new IllegalArgumentException("Expected at least " + format.getColumnCount() + " columns");
+                    }
+                    LocalDate date = reader.getDate(format.getDateColumn(), format.getDateOrder());
+                    BigDecimal amount = format.toExpenseAmount(reader);
+                    if (amount == null) {
+                        csvImport.report.recordSkipped();
+                        continue;
+                    }
+                    String title = reader.getString(format.getDescriptionColumn());
 
-                    if (!expenseRepository.existsByUserIdAndDateAndAmountAndTitle(getCurrentUserId(), date, amount, title)) {
-                        ExpenseRequest request = new ExpenseRequest(title, amount, date);
-                        createExpense(request);
+                    csvImport.add(lineNumber, new ExpenseKey(date, amount, title));
+                } catch (RuntimeException e) {
+                    if (!unknownHeader) {
+                        csvImport.report.recordMalformed(lineNumber);
                     }
+                }
 
-                } catch (Exception e) {
-                    System.err.println("Skipping line due to parse error: " + line);
-                    e.printStackTrace();
+                if (csvImport.pending.size() >= importBatchSize && !csvImport.flush(lineNumber)) {
+                    return csvImport.report;
                 }
             }
-
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to read CSV file", e);
+            csvImport.flush(lastLine);
         }
+
+        return csvImport.report;
     }
 
     private Long getCurrentUserId() {
@@ -118,5 +388,133 @@ public class ExpenseService {
         return userDetails.getId();
     }
 
+    // State of one CSV import: the pending batch, the dedupe keys loaded so far and the data version they were loaded at
+    private class CsvImport {
+        private final Long userId;
+        private final ImportReport report;
+        private final ImportProgressListener listener;
+        private final KeywordMatcher<ExpenseCategory> categories;
+        private final List<PendingRow> pending = new ArrayList<>();
+        private final Set<ExpenseKey> knownKeys = new HashSet<>();
+        private LocalDate loadedFrom;
+        private LocalDate loadedTo;
+        private Long keysVersion;
+
+        private CsvImport(Long userId, ImportReport report, ImportProgressListener listener) {
+            this.userId = userId;
+            this.report = report;
+            this.listener = listener;
+            this.categories = categoryRuleService.getMatcher(userId);
+        }
+
+        private void add(int lineNumber, ExpenseKey key) {
+            pending.add(new PendingRow(lineNumber, key));
+        }
+
+        // Writes the pending rows, returns false without writing when the import has been cancelled
+        private boolean flush(int lastLine) {
+            if (listener.isCancelled()) {
+                return false;
+            }
+            if (pending.isEmpty()) {
+                if (listener != ImportProgressListener.NONE) {
+                    transactionTemplate.executeWithoutResult(status -> listener.batchCommitted(report, lastLine));
+                }
+                return true;
+            }
+
+            LocalDate min = pending.get(0).key().date();
+            LocalDate max = min;
+            for (PendingRow row : pending) {
+                LocalDate date = row.key().date();
+                if (date.isBefore(min)) min = date;
+                if (date.isAfter(max)) max = date;
+            }
+            loadKeys(min, max);
+
+            List<PendingRow> rows = newRows(pending);
+            if (rows.isEmpty() && listener == ImportProgressListener.NONE) {
+                pending.clear();
+                return true;
+            }
+
+            // Each batch commits together with its rollup deltas and the listener's progress record
+            transactionTemplate.executeWithoutResult(status -> {
+                List<PendingRow> inserted = rows;
+                if (!inserted.isEmpty()) {
+                    // The version row lock serialises the batch with every other write of the user. If anything
+                    // was written since the keys were loaded, reload them to catch rows a concurrent import stored.
+                    Long version = dataVersionService.bumpAndGet(userId);
+                    if (version != null && (keysVersion == null || version != keysVersion + 1)) {
+                        knownKeys.clear();
+                        knownKeys.addAll(expenseRepository.findKeysByUserIdAndDateBetween(userId, loadedFrom, loadedTo));
+                        inserted = newRows(inserted);
+                    }
+                    keysVersion = version;
+                }
+                if (!inserted.isEmpty()) {
+                    List<Expense> batch = toExpenses(inserted);
+                    expenseJdbcRepository.batchInsert(userId, batch);
+                    rollupService.addAll(userId, batch);
+                    report.recordInserted(batch.size());
+                }
+                listener.batchCommitted(report, lastLine);
+            });
+            pending.clear();
+            return true;
+        }
+
+        // Rows whose key is not known yet, adding to the key set also catches rows repeated within the file
+        private List<PendingRow> newRows(List<PendingRow> candidates) {
+            List<PendingRow> rows = new ArrayList<>(candidates.size());
+            for (PendingRow row : candidates) {
+                if (knownKeys.add(row.key())) {
+                    rows.add(row);
+                } else {
+                    report.recordDuplicate(row.lineNumber());
+                }
+            }
+            return rows;
+        }
+
+        private List<Expense> toExpenses(List<PendingRow> rows) {
+            List<Expense> batch = new ArrayList<>(rows.size());
+            for (PendingRow row : rows) {
+                ExpenseCategory category = categories.find(row.key().title());
+                batch.add(Expense.builder()
+                        .title(row.key().title())
+                        .amount(row.key().amount())
+                        .category(category != null ? category : ExpenseCategory.NA)
+                        .date(row.key().date())
+                        .build());
+            }
+            return batch;
+        }
+
+        // Only query the part of the date window that has not been loaded yet, bank exports are usually sorted
+        private void loadKeys(LocalDate from, LocalDate to) {
+            if (loadedFrom == null) {
+                // Read before the keys, a write in between then only costs one reload
+                keysVersion = dataVersionService.getVersion(userId);
+                knownKeys.addAll(expenseRepository.findKeysByUserIdAndDateBetween(userId, from, to));
+                loadedFrom = from;
+                loadedTo = to;
+                return;
+            }
+            if (from.isBefore(loadedFrom)) {
+                knownKeys.addAll(expenseRepository.findKeysByUserIdAndDateBetween(userId, from, loadedFrom.minusDays(1)));
+                loadedFrom = from;
+            }
+            if (to.isAfter(loadedTo)) {
+                knownKeys.addAll(expenseRepository.findKeysByUserIdAndDateBetween(userId, loadedTo.plusDays(1), to));
+                loadedTo = to;
+            }
+        }
+    }
+
+    private record PendingRow(int lineNumber, ExpenseKey key) {
+    }
 
+    private record RecategorisedChunk(int examined, int updated, ExpenseCursor next) {
+    }
 }
@@ -0,0 +1,341 @@
+package com.lobanmatin.budget_api.service;
+
+import com.lobanmatin.budget_api.dto.ImportJobResponse;
+import com.lobanmatin.budget_api.dto.ImportReport;
+import com.lobanmatin.budget_api.exception.ResourceNotFoundException;
+import com.lobanmatin.budget_api.exception.ServiceUnavailableException;
+import com.lobanmatin.budget_api.model.CsvProfile;
+import com.lobanmatin.budget_api.model.ImportJob;
+import com.lobanmatin.budget_api.model.ImportJobFile;
+import com.lobanmatin.budget_api.model.ImportJobStatus;
+import com.lobanmatin.budget_api.repository.ImportJobFileRepository;
+import com.lobanmatin.budget_api.repository.ImportJobRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs CSV imports in the background on a bounded pool. The uploaded file and the job's progress are stored,
+ * so a job left unfinished by a stopped instance is resumed from its last committed batch. Each instance holds
+ * a lease on the jobs it has queued or is running and renews it while alive. Jobs whose lease has expired are
+ * taken over by whichever instance locks them first, and every batch checks that its instance still owns the job.
+ */
+@Service
+public class ImportJobService {
+
+    private static final long RETRY_AFTER_SECONDS = 30;
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final ImportJobRepository importJobRepository;
+    private final ImportJobFileRepository importJobFileRepository;
+    private final ExpenseService expenseService;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolTaskExecutor executor;
+    // Identifies this instance as the owner of the jobs it runs, new on every start
+    private final String instanceId = UUID.randomUUID().toString();
+    private final Duration leaseDuration;
+    private final MeterRegistry meterRegistry;
+    private final Counter insertedRows;
+    private final Counter duplicateRows;
+    private final Counter malformedRows;
+    private final Counter skippedRows;
+
+    public ImportJobService(ImportJobRepository importJobRepository,
+                            ImportJobFileRepository importJobFileRepository,
+                            ExpenseService expenseService,
+                            TransactionTemplate transactionTemplate,
+                            MeterRegistry meterRegistry,
+                            @Value("${expense.import.workers:2}") int workers,
+                            @Value("${expense.import.queue-capacity:100}") int queueCapacity,
+                            @Value("${expense.import.lease-ms:60000}") long leaseMs) {
+        this.importJobRepository = importJobRepository;
+        this.importJobFileRepository = importJobFileRepository;
+        this.expenseService = expenseService;
+        this.transactionTemplate = transactionTemplate;
+        this.leaseDuration = Duration.ofMillis(leaseMs);
+
+        // Kept private to this service so @Async work never lands on the import pool
+        this.executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("csv-import-");
+        executor.initialize();
+
+        this.meterRegistry = meterRegistry;
+        this.insertedRows = rowCounter("inserted");
+        this.duplicateRows = rowCounter("duplicate");
+        this.malformedRows = rowCounter("malformed");
+        this.skippedRows = rowCounter("skipped");
+        Gauge.builder("expense.import.queue.size", executor, pool -> pool.getThreadPoolExecutor().getQueue().size())
+                .description("Import jobs waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("expense.import.workers.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+                .description("Import workers currently running a job")
+                .register(meterRegistry);
+    }
+
+    private Counter rowCounter(String outcome) {
+        return Counter.builder("expense.import.rows")
+                .description("CSV rows handled by import jobs, rate() gives the import throughput")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        // Interrupted jobs stay RUNNING in the table and are taken over once their lease expires
+        executor.shutdown();
+    }
+
+    public ImportJobResponse submit(Long userId, MultipartFile file, CsvProfile format) {
+        byte[] content;
+        try {
+            content = file.getBytes();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read CSV file", e);
+        }
+
+        ImportJob job = transactionTemplate.execute(status -> {
+            ImportJob saved = importJobRepository.save(ImportJob.builder()
+                    .userId(userId)
+                    .status(ImportJobStatus.QUEUED)
+                    .format(format)
+                    .fileName(file.getOriginalFilename())
+                    .createdAt(Instant.now())
+                    .owner(instanceId)
+                    .leaseExpiresAt(Instant.now().plus(leaseDuration))
+                    .build());
+            importJobFileRepository.save(new ImportJobFile(saved.getId(), content));
+            return saved;
+        });
+
+        try {
+            executor.execute(() -> runJob(job.getId()));
+        } catch (TaskRejectedException e) {
+            transactionTemplate.executeWithoutResult(status -> {
+                importJobFileRepository.deleteById(job.getId());
+                importJobRepository.deleteById(job.getId());
+            });
+            throw new ServiceUnavailableException("Import queue is full, try again later", RETRY_AFTER_SECONDS);
+        }
+        return toResponse(job);
+    }
+
+    public ImportJobResponse getJob(UUID jobId, Long userId) {
+        return importJobRepository.findByIdAndUserId(jobId, userId)
+                .map(this::toResponse)
+                .orElseThrow(() -> new ResourceNotFoundException("Import job not found"));
+    }
+
+    public ImportJobResponse cancel(UUID jobId, Long userId) {
+        int cancelled = transactionTemplate.execute(status -> {
+            int updated = importJobRepository.cancel(jobId, userId, Instant.now());
+            if (updated > 0) {
+                importJobFileRepository.deleteById(jobId);
+            }
+            return updated;
+        });
+
+        ImportJobResponse job = getJob(jobId, userId);
+        if (cancelled == 0) {
+            throw new RuntimeException("Import job has already finished");
+        }
+        return job;
+    }
+
+    @Scheduled(fixedDelayString = "${expense.import.lease-renew-interval-ms:15000}")
+    public void renewLeases() {
+        transactionTemplate.execute(status ->
+                importJobRepository.renewLeases(instanceId, Instant.now().plus(leaseDuration)));
+    }
+
+    /**
+     * Queue the jobs whose owner stopped renewing its lease, as many as this instance's queue has room for.
+     * Runs on startup and then on every lease renewal, so jobs of an instance that went away are resumed
+     * by the others within one lease duration.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${expense.import.lease-renew-interval-ms:15000}",
+            fixedDelayString = "${expense.import.lease-renew-interval-ms:15000}")
+    public void resumeJobs() {
+        int room = executor.getThreadPoolExecutor().getQueue().remainingCapacity();
+        if (room == 0) {
+            return;
+        }
+
+        List<UUID> taken = transactionTemplate.execute(status -> {
+            Instant now = Instant.now();
+            List<ImportJob> expired = importJobRepository.lockExpired(now, Limit.of(room));
+            for (ImportJob job : expired) {
+                // Resumed from the last committed batch once claimed by a worker
+                job.setStatus(ImportJobStatus.QUEUED);
+                job.setOwner(instanceId);
+                job.setLeaseExpiresAt(now.plus(leaseDuration));
+            }
+            return expired.stream().map(ImportJob::getId).toList();
+        });
+
+        for (int i = 0; i < taken.size(); i++) {
+            UUID jobId = taken.get(i);
+            try {
+                executor.execute(() -> runJob(jobId));
+            } catch (TaskRejectedException e) {
+                // Let another instance, or a later pass, have the jobs this one has no room for
+                Set<UUID> rejected = Set.copyOf(taken.subList(i, taken.size()));
+                transactionTemplate.execute(status -> importJobRepository.release(rejected, instanceId));
+                return;
+            }
+        }
+    }
+
+    void runJob(UUID jobId) {
+        Integer claimed = transactionTemplate.execute(status -> importJobRepository.claim(jobId, instanceId, Instant.now()));
+        if (claimed == null || claimed == 0) {
+            // Cancelled while waiting in the queue, or taken over by another instance
+            return;
+        }
+
+        ImportJob job = importJobRepository.findById(jobId).orElseThrow();
+        Optional<ImportJobFile> file = importJobFileRepository.findById(jobId);
+        if (file.isEmpty()) {
+            finish(jobId, ImportJobStatus.FAILED, "Uploaded file is no longer available");
+            return;
+        }
+
+        // Counts of batches committed before a restart carry over
+        ImportReport report = new ImportReport();
+        report.setInserted(job.getInserted());
+        report.setDuplicates(job.getDuplicates());
+        report.setMalformed(job.getMalformed());
+        report.setSkipped(job.getSkipped());
+
+        long start = System.nanoTime();
+        ImportJobStatus outcome;
+        try {
+            expenseService.importExpenses(job.getUserId(), new ByteArrayInputStream(file.get().getContent()),
+                    job.getFormat(), report, job.getRowsProcessed(), new JobProgress(jobId, report));
+            outcome = finish(jobId, ImportJobStatus.COMPLETED, null);
+        } catch (DataAccessException e) {
+            // Keep SQL out of the user facing error
+            outcome = finish(jobId, ImportJobStatus.FAILED, "Database error while importing");
+        } catch (Exception e) {
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            outcome = finish(jobId, ImportJobStatus.FAILED, message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message);
+        }
+
+        Timer.builder("expense.import.jobs")
+                .description("Time spent running import jobs by final status")
+                .tag("status", outcome.name().toLowerCase())
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    // Returns the status the job ended with, CANCELLED when it was cancelled or taken over while running
+    private ImportJobStatus finish(UUID jobId, ImportJobStatus status, String error) {
+        Integer finished = transactionTemplate.execute(tx -> {
+            int updated = importJobRepository.finish(jobId, instanceId, status, error, Instant.now());
+            if (updated > 0) {
+                // A cancelled job's file is already gone, a job taken over still needs it
+                importJobFileRepository.deleteById(jobId);
+            }
+            return updated;
+        });
+        return finished != null && finished > 0 ? status : ImportJobStatus.CANCELLED;
+    }
+
+    private ImportJobResponse toResponse(ImportJob job) {
+        double rowsPerSecond = 0;
+        if (job.getStartedAt() != null) {
+            Instant end = job.getFinishedAt() != null ? job.getFinishedAt() : Instant.now();
+            long millis = Duration.between(job.getStartedAt(), end).toMillis();
+            if (millis > 0) {
+                rowsPerSecond = Math.round(job.getRowsProcessed() * 10000.0 / millis) / 10.0;
+            }
+        }
+
+        return ImportJobResponse.builder()
+                .jobId(job.getId())
+                .status(job.getStatus())
+                .fileName(job.getFileName())
+                .format(job.getFormat())
+                .rowsProcessed(job.getRowsProcessed())
+                .rowsPerSecond(rowsPerSecond)
+                .inserted(job.getInserted())
+                .duplicates(job.getDuplicates())
+                .malformed(job.getMalformed())
+                .skipped(job.getSkipped())
+                .error(job.getError())
+                .createdAt(job.getCreatedAt())
+                .startedAt(job.getStartedAt())
+                .finishedAt(job.getFinishedAt())
+                .build();
+    }
+
+    // Records progress with each committed batch and stops the import once the job is cancelled
+    private class JobProgress implements ImportProgressListener {
+        private final UUID jobId;
+        // Counts already added to the row counters
+        private int inserted;
+        private int duplicates;
+        private int malformed;
+        private int skipped;
+
+        private JobProgress(UUID jobId, ImportReport resumedFrom) {
+            this.jobId = jobId;
+            this.inserted = resumedFrom.getInserted();
+            this.duplicates = resumedFrom.getDuplicates();
+            this.malformed = resumedFrom.getMalformed();
+            this.skipped = resumedFrom.getSkipped();
+        }
+
+        @Override
+        public void batchCommitted(ImportReport report, int lastLine) {
+            int updated = importJobRepository.updateProgress(jobId, instanceId, lastLine, report.getInserted(),
+                    report.getDuplicates(), report.getMalformed(), report.getSkipped());
+            if (updated == 0) {
+                // Rolls the batch back, the instance that took the job over imports these rows
+                throw new IllegalStateException("Import job was taken over by another instance");
+            }
+
+            insertedRows.increment(report.getInserted() - inserted);
+            duplicateRows.increment(report.getDuplicates() - duplicates);
+            malformedRows.increment(report.getMalformed() - malformed);
+            skippedRows.increment(report.getSkipped() - skipped);
+            inserted = report.getInserted();
+            duplicates = report.getDuplicates();
+            malformed = report.getMalformed();
+            skipped = report.getSkipped();
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return importJobRepository.findStatusById(jobId)
+                    .map(status -> status == ImportJobStatus.CANCELLED)
+                    .orElse(true);
+        }
+    }
+}
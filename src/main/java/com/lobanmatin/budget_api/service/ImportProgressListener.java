@@ -0,0 +1,21 @@
+package com.lobanmatin.budget_api.service;
+
+import com.lobanmatin.budget_api.dto.ImportReport;
+
+/**
+ * Hooks into a running CSV import. Progress is reported inside each batch's transaction, so it commits
+ * together with the rows, and the import stops at the next batch boundary once cancelled.
+ */
+public interface ImportProgressListener {
+
+    ImportProgressListener NONE = new ImportProgressListener() {
+    };
+
+    // Every line up to lastLine is reflected in the report
+    default void batchCommitted(ImportReport report, int lastLine) {
+    }
+
+    default boolean isCancelled() {
+        return false;
+    }
+}
@@ -0,0 +1,57 @@
+package com.lobanmatin.budget_api.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+@ConditionalOnProperty(name = "jwt.blacklist.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryTokenBlacklistStore implements TokenBlacklistStore {
+
+    private final Map<String, Revocation> revokedTokens = new ConcurrentHashMap<>();
+
+    @Override
+    public void add(String tokenId, Instant expiresAt) {
+        revokedTokens.put(tokenId, new Revocation(expiresAt, Instant.now()));
+    }
+
+    @Override
+    public boolean contains(String tokenId, Instant now) {
+        Revocation revocation = revokedTokens.get(tokenId);
+        return revocation != null && revocation.expiresAt().isAfter(now);
+    }
+
+    @Override
+    public Collection<String> activeTokenIds(Instant now) {
+        return revokedTokens.entrySet().stream()
+                .filter(entry -> entry.getValue().expiresAt().isAfter(now))
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    @Override
+    public Collection<String> activeTokenIdsRevokedSince(Instant since, Instant now) {
+        return revokedTokens.entrySet().stream()
+                .filter(entry -> entry.getValue().expiresAt().isAfter(now) && !entry.getValue().revokedAt().isBefore(since))
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    @Override
+    public void purgeExpired(Instant now) {
+        revokedTokens.values().removeIf(revocation -> !revocation.expiresAt().isAfter(now));
+    }
+
+    @Override
+    public long size(Instant now) {
+        return revokedTokens.size();
+    }
+
+    private record Revocation(Instant expiresAt, Instant revokedAt) {
+    }
+}
@@ -0,0 +1,138 @@
+package com.lobanmatin.budget_api.service;
+
+import com.lobanmatin.budget_api.dto.CategoryChange;
+import com.lobanmatin.budget_api.dto.SpendingTotal;
+import com.lobanmatin.budget_api.model.Expense;
+import com.lobanmatin.budget_api.model.ExpenseCategory;
+import com.lobanmatin.budget_api.repository.SpendingRollupRepository;
+import com.lobanmatin.budget_api.repository.UserRepository;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains the per user, per month, per category spending rollups. Every expense write applies its delta
+ * inside the caller's transaction, so the rollups only drift if the expenses table is changed directly.
+ */
+@Service
+public class SpendingRollupService {
+
+    private static final int REBUILD_PAGE_SIZE = 1000;
+
+    private final SpendingRollupRepository rollupRepository;
+    private final UserRepository userRepository;
+    private final DataVersionService dataVersionService;
+    private final TransactionTemplate transactionTemplate;
+
+    public SpendingRollupService(SpendingRollupRepository rollupRepository, UserRepository userRepository,
+                                 DataVersionService dataVersionService, TransactionTemplate transactionTemplate) {
+        this.rollupRepository = rollupRepository;
+        this.userRepository = userRepository;
+        this.dataVersionService = dataVersionService;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public void add(Long userId, LocalDate date, ExpenseCategory category, BigDecimal amount, long count) {
+        rollupRepository.addToRollup(userId, YearMonth.from(date).atDay(1), category.name(), amount, count);
+    }
+
+    public void addAll(Long userId, List<Expense> expenses) {
+        // Collapse the batch to one delta per month and category before touching the table
+        Map<RollupKey, RollupDelta> deltas = new HashMap<>();
+        for (Expense expense : expenses) {
+            accumulate(deltas, expense.getDate(), expense.getCategory(), expense.getAmount(), 1);
+        }
+        apply(userId, deltas);
+    }
+
+    // Takes deleted expenses out of their rollups
+    public void removeAll(Long userId, List<Expense> expenses) {
+        Map<RollupKey, RollupDelta> deltas = new HashMap<>();
+        for (Expense expense : expenses) {
+            accumulate(deltas, expense.getDate(), expense.getCategory(), expense.getAmount().negate(), -1);
+        }
+        apply(userId, deltas);
+    }
+
+    // Takes every changed expense out of its old category's rollup and adds it to the new one
+    public void moveAll(Long userId, List<CategoryChange> changes) {
+        Map<RollupKey, RollupDelta> deltas = new HashMap<>();
+        for (CategoryChange change : changes) {
+            accumulate(deltas, change.date(), change.from(), change.amount().negate(), -1);
+            accumulate(deltas, change.date(), change.to(), change.amount(), 1);
+        }
+        apply(userId, deltas);
+    }
+
+    public void deleteAll(Long userId) {
+        rollupRepository.deleteAllByUserId(userId);
+    }
+
+    public List<SpendingTotal> getTotals(Long userId, YearMonth from, YearMonth to, boolean byCategory, boolean byMonth) {
+        LocalDate fromMonth = from.atDay(1);
+        LocalDate toMonth = to.atDay(1);
+        if (byCategory && byMonth) {
+            return rollupRepository.findByMonthAndCategory(userId, fromMonth, toMonth);
+        } else if (byMonth) {
+            return rollupRepository.sumByMonth(userId, fromMonth, toMonth);
+        }
+        return rollupRepository.sumByCategory(userId, fromMonth, toMonth);
+    }
+
+    /**
+     * Recompute all rollups from scratch to repair any drift, scheduled nightly by default. Every user is rebuilt
+     * in their own transaction, so the rebuild only ever locks one user's rollups and a failure only rolls back
+     * that user. Each rebuild holds the user's data version lock, like every expense write.
+     */
+    @Scheduled(cron = "${expense.rollup.rebuild-cron:0 0 3 * * *}")
+    public void rebuildAll() {
+        long afterId = 0;
+        List<Long> userIds;
+        do {
+            userIds = userRepository.findIdsAfter(afterId, Limit.of(REBUILD_PAGE_SIZE));
+            for (Long userId : userIds) {
+                rebuild(userId);
+            }
+            if (!userIds.isEmpty()) {
+                afterId = userIds.get(userIds.size() - 1);
+            }
+        } while (userIds.size() == REBUILD_PAGE_SIZE);
+    }
+
+    public void rebuild(Long userId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            // Taken first, so no expense write of the user commits between reading the expenses and the insert
+            dataVersionService.bump(userId);
+            rollupRepository.deleteAllByUserId(userId);
+            rollupRepository.insertRollupsFromExpenses(userId);
+        });
+    }
+
+    private static void accumulate(Map<RollupKey, RollupDelta> deltas, LocalDate date, ExpenseCategory category,
+                                   BigDecimal amount, long count) {
+        RollupKey key = new RollupKey(YearMonth.from(date), category);
+        RollupDelta delta = deltas.get(key);
+        deltas.put(key, delta == null
+                ? new RollupDelta(amount, count)
+                : new RollupDelta(delta.total().add(amount), delta.count() + count));
+    }
+
+    private void apply(Long userId, Map<RollupKey, RollupDelta> deltas) {
+        deltas.forEach((key, delta) -> rollupRepository.addToRollup(
+                userId, key.month().atDay(1), key.category().name(), delta.total(), delta.count()));
+    }
+
+    private record RollupKey(YearMonth month, ExpenseCategory category) {
+    }
+
+    private record RollupDelta(BigDecimal total, long count) {
+    }
+}
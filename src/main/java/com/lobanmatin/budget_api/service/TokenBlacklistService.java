@@ -1,20 +1,109 @@
 package com.lobanmatin.budget_api.service;
 
+import com.lobanmatin.budget_api.security.JwtUtil;
+import com.lobanmatin.budget_api.util.BloomFilter;
+import io.jsonwebtoken.Claims;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Tracks logged out tokens by id until they expire. A Bloom filter in front of the store answers the common
+ * "not revoked" case without touching the store. Every refresh adds the ids revoked since the last one, which
+ * picks up logouts made on other replicas when the shared database store is used, so such a logout takes effect
+ * here within one refresh interval. Less often the filter is rebuilt from the store to drop expired ids.
+ */
 @Service
 public class TokenBlacklistService {
 
-    private final Set<String> blacklist = ConcurrentHashMap.newKeySet();
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    // Incremental refreshes look back this much further, covering clock skew between replicas and slow commits
+    private static final Duration REFRESH_OVERLAP = Duration.ofSeconds(30);
+
+    private final TokenBlacklistStore store;
+    private final JwtUtil jwtUtil;
+    private final int expectedSize;
+    private final long rebuildIntervalMs;
+    private volatile BloomFilter filter;
+    private Instant lastRebuild;
+    private Instant lastRefresh;
+    // A lock rather than synchronized, the refresh reads the store while holding it and a monitor would pin a virtual thread
+    private final ReentrantLock filterLock = new ReentrantLock();
+
+    public TokenBlacklistService(TokenBlacklistStore store,
+                                 JwtUtil jwtUtil,
+                                 @Value("${jwt.blacklist.expected-size:100000}") int expectedSize,
+                                 @Value("${jwt.blacklist.rebuild-interval-ms:600000}") long rebuildIntervalMs) {
+        this.store = store;
+        this.jwtUtil = jwtUtil;
+        this.expectedSize = expectedSize;
+        this.rebuildIntervalMs = rebuildIntervalMs;
+    }
+
+    @PostConstruct
+    void init() {
+        refresh();
+    }
 
     public void blacklist(String token) {
-        blacklist.add(token);
+        // Invalid or expired tokens are already rejected, there is nothing to remember
+        Optional<Claims> claims = jwtUtil.validateAndGetClaims(token);
+        if (claims.isEmpty()) {
+            return;
+        }
+
+        String tokenId = jwtUtil.tokenId(claims.get(), token);
+        store.add(tokenId, claims.get().getExpiration().toInstant());
+        // Locked so a concurrent refresh cannot swap in a filter built before this id was stored
+        filterLock.lock();
+        try {
+            filter.put(tokenId);
+        } finally {
+            filterLock.unlock();
+        }
     }
 
-    public boolean isBlacklisted(String token) {
-        return blacklist.contains(token);
+    public boolean isBlacklisted(Claims claims, String token) {
+        String tokenId = jwtUtil.tokenId(claims, token);
+        if (!filter.mightContain(tokenId)) {
+            return false;
+        }
+        return store.contains(tokenId, Instant.now());
+    }
+
+    public long size() {
+        return store.size(Instant.now());
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.blacklist.refresh-interval-ms:1000}")
+    public void refresh() {
+        Instant now = Instant.now();
+        boolean rebuild = lastRebuild == null || !now.isBefore(lastRebuild.plusMillis(rebuildIntervalMs));
+        if (rebuild) {
+            store.purgeExpired(now);
+        }
+
+        filterLock.lock();
+        try {
+            if (rebuild) {
+                Collection<String> activeTokenIds = store.activeTokenIds(now);
+                BloomFilter rebuilt = new BloomFilter(Math.max(expectedSize, activeTokenIds.size() * 2), FALSE_POSITIVE_RATE);
+                activeTokenIds.forEach(rebuilt::put);
+                filter = rebuilt;
+                lastRebuild = now;
+            } else {
+                store.activeTokenIdsRevokedSince(lastRefresh.minus(REFRESH_OVERLAP), now).forEach(filter::put);
+            }
+            lastRefresh = now;
+        } finally {
+            filterLock.unlock();
+        }
     }
 }
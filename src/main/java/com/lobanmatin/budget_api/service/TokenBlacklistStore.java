@@ -0,0 +1,24 @@
+package com.lobanmatin.budget_api.service;
+
+import java.time.Instant;
+import java.util.Collection;
+
+/**
+ * Backend holding revoked token ids until their expiry. Selected with jwt.blacklist.store,
+ * 'memory' keeps them on this node only, 'database' shares them across every replica.
+ */
+public interface TokenBlacklistStore {
+
+    void add(String tokenId, Instant expiresAt);
+
+    boolean contains(String tokenId, Instant now);
+
+    Collection<String> activeTokenIds(Instant now);
+
+    // Active ids revoked at or after since, used to top up the filter between full rebuilds
+    Collection<String> activeTokenIdsRevokedSince(Instant since, Instant now);
+
+    void purgeExpired(Instant now);
+
+    long size(Instant now);
+}
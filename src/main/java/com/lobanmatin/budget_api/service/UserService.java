@@ -2,26 +2,54 @@ package com.lobanmatin.budget_api.service;
 import com.lobanmatin.budget_api.dto.UserRequest;
 import com.lobanmatin.budget_api.exception.ResourceNotFoundException;
 import com.lobanmatin.budget_api.model.User;
+import com.lobanmatin.budget_api.model.UserDataVersion;
+import com.lobanmatin.budget_api.repository.BudgetRepository;
+import com.lobanmatin.budget_api.repository.CategoryRuleRepository;
+import com.lobanmatin.budget_api.repository.ExpenseRepository;
+import com.lobanmatin.budget_api.repository.SpendingRollupRepository;
+import com.lobanmatin.budget_api.repository.UserDataVersionRepository;
 import com.lobanmatin.budget_api.repository.UserRepository;
 import com.lobanmatin.budget_api.model.Role;
-import jakarta.transaction.Transactional;
 import org.springframework.dao.DataIntegrityViolationException;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import java.util.List;
 
 @Service
 public class UserService {
 
     private final UserRepository userRepository;
-    private final BCryptPasswordEncoder passwordEncoder;
+    private final ExpenseRepository expenseRepository;
+    private final BudgetRepository budgetRepository;
+    private final SpendingRollupRepository rollupRepository;
+    private final UserDataVersionRepository dataVersionRepository;
+    private final CategoryRuleRepository categoryRuleRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final TransactionTemplate transactionTemplate;
 
-    public UserService(UserRepository userRepository, BCryptPasswordEncoder passwordEncoder) {
+    public UserService(UserRepository userRepository,
+                       ExpenseRepository expenseRepository,
+                       BudgetRepository budgetRepository,
+                       SpendingRollupRepository rollupRepository,
+                       UserDataVersionRepository dataVersionRepository,
+                       CategoryRuleRepository categoryRuleRepository,
+                       PasswordEncoder passwordEncoder,
+                       TransactionTemplate transactionTemplate) {
         this.userRepository = userRepository;
+        this.expenseRepository = expenseRepository;
+        this.budgetRepository = budgetRepository;
+        this.rollupRepository = rollupRepository;
+        this.dataVersionRepository = dataVersionRepository;
+        this.categoryRuleRepository = categoryRuleRepository;
         this.passwordEncoder = passwordEncoder;
+        this.transactionTemplate = transactionTemplate;
     }
 
+    // Hashed before the transaction, so no connection is held while waiting for a hashing thread.
+    // A concurrent sign up with the same email is still rejected by the unique constraint on save.
     public void createUser(UserRequest request) {
         if (userRepository.existsByEmail(request.getEmail())) {
             throw new DataIntegrityViolationException("Email already exists for this user, creation unsuccessful.");
@@ -34,20 +62,32 @@ public class UserService {
                 .role(Role.USER)
                 .build();
 
-        userRepository.save(user);
+        transactionTemplate.executeWithoutResult(status -> {
+            userRepository.save(user);
+            dataVersionRepository.save(new UserDataVersion(user.getId(), 0L));
+        });
     }
 
+    @Transactional(readOnly = true)
     public List<User> getAllUsers() {
         return userRepository.findAll();
     }
 
+    @Transactional(readOnly = true)
     public User getUserById(Long id) {
         return userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found."));
     }
 
+    // Dependent rows go first, one statement per table, so the user delete does not hit foreign keys
     @Transactional
     public void deleteAllUsers() {
+        expenseRepository.deleteAllByUserRoleUser();
+        rollupRepository.deleteAllByUserRoleUser();
+        budgetRepository.deleteCategoryLimitsByUserRoleUser();
+        budgetRepository.deleteAllByUserRoleUser();
+        dataVersionRepository.deleteAllByUserRoleUser();
+        categoryRuleRepository.deleteAllByUserRoleUser();
         userRepository.deleteAllByRoleUser();
     }
 }
@@ -0,0 +1,297 @@
+package com.lobanmatin.budget_api.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Streaming RFC 4180 CSV reader. Each record is unescaped into one reusable char buffer and fields are
+ * addressed by index, so dates and amounts are parsed straight from the buffer without a String per field.
+ * Quoted fields may contain commas, doubled quotes and line breaks. Not thread safe.
+ */
+public class CsvReader implements Closeable {
+
+    public enum DateOrder {
+        DAY_MONTH_YEAR,
+        MONTH_DAY_YEAR,
+        YEAR_MONTH_DAY
+    }
+
+    private static final int NO_CHAR = -2;
+
+    private final Reader reader;
+    private final char[] buffer = new char[8192];
+    private int position;
+    private int limit;
+    private int pushback = NO_CHAR;
+
+    // Unescaped characters of the current record, fields are [starts[i], ends[i]) slices of it
+    private char[] chars = new char[256];
+    private int length;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int fieldCount;
+
+    private int linesRead;
+    private int lineNumber;
+
+    public CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Advances to the next record, returning false at the end of the input.
+     */
+    public boolean next() throws IOException {
+        fieldCount = 0;
+        length = 0;
+
+        int c = read();
+        if (linesRead == 0 && lineNumber == 0 && c == '\uFEFF') {
+            // Byte order mark written by spreadsheet exports
+            c = read();
+        }
+        if (c < 0) {
+            return false;
+        }
+        lineNumber = linesRead + 1;
+
+        int fieldStart = 0;
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c < 0) {
+                    // Unterminated quote, keep what was read
+                    endField(fieldStart);
+                    return true;
+                }
+                if (c == '"') {
+                    c = read();
+                    if (c != '"') {
+                        quoted = false;
+                        continue;
+                    }
+                } else if (c == '\n') {
+                    linesRead++;
+                }
+                append((char) c);
+            } else if (c < 0 || c == '\n' || c == '\r') {
+                endField(fieldStart);
+                if (c == '\r') {
+                    int n = read();
+                    if (n != '\n') {
+                        pushback = n;
+                    }
+                }
+                linesRead++;
+                return true;
+            } else if (c == ',') {
+                endField(fieldStart);
+                fieldStart = length;
+            } else if (c == '"' && isBlank(fieldStart, length)) {
+                // Opening quote, whitespace in front of it is dropped
+                length = fieldStart;
+                quoted = true;
+            } else {
+                append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    /**
+     * Line the current record starts on, counting from 1.
+     */
+    public int lineNumber() {
+        return lineNumber;
+    }
+
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    public boolean isBlankRecord() {
+        return fieldCount == 1 && isEmpty(0);
+    }
+
+    public boolean isEmpty(int field) {
+        return trimmedStart(field) == trimmedEnd(field);
+    }
+
+    public String getString(int field) {
+        int start = trimmedStart(field);
+        return new String(chars, start, trimmedEnd(field) - start);
+    }
+
+    public boolean equalsIgnoreCase(int field, String value) {
+        int start = trimmedStart(field);
+        int end = trimmedEnd(field);
+        if (end - start != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char a = chars[start + i];
+            char b = value.charAt(i);
+            if (a != b && Character.toLowerCase(a) != Character.toLowerCase(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses an amount such as {@code -1,234.50}, {@code $12.00} or {@code (12.00)}. Currency symbols and
+     * thousands separators are skipped, a minus sign or parentheses make the amount negative.
+     */
+    public BigDecimal getDecimal(int field) {
+        int start = trimmedStart(field);
+        int end = trimmedEnd(field);
+        long unscaled = 0;
+        int digits = 0;
+        int scale = -1;
+        boolean negative = false;
+
+        for (int i = start; i < end; i++) {
+            char c = chars[i];
+            if (c >= '0' && c <= '9') {
+                if (++digits > 18) {
+                    throw new NumberFormatException("Amount has too many digits");
+                }
+                unscaled = unscaled * 10 + (c - '0');
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else if (c == '.' && scale < 0) {
+                scale = 0;
+            } else if (c == '-' || c == '(') {
+                negative = true;
+            } else if (c == '+' || c == ',' || c == ')' || c == ' ' || c == '$' || c == '\u20AC' || c == '\u00A3') {
+                // Sign, grouping and currency characters carry no digits
+            } else {
+                throw new NumberFormatException("Invalid amount character '" + c + "'");
+            }
+        }
+        if (digits == 0) {
+            throw new NumberFormatException("Amount has no digits");
+        }
+        return BigDecimal.valueOf(negative ? -unscaled : unscaled, Math.max(scale, 0));
+    }
+
+    /**
+     * Parses a date made of three numeric parts separated by any single non digit, e.g. {@code 3/07/2024}
+     * or {@code 2024-07-03}. Two digit years are read as 20yy.
+     */
+    public LocalDate getDate(int field, DateOrder order) {
+        int start = trimmedStart(field);
+        int end = trimmedEnd(field);
+        int first = 0, second = 0, third = 0;
+        int firstWidth = 0, secondWidth = 0, thirdWidth = 0;
+        int part = 0;
+
+        for (int i = start; i < end; i++) {
+            char c = chars[i];
+            if (c >= '0' && c <= '9') {
+                int digit = c - '0';
+                switch (part) {
+                    case 0 -> { first = first * 10 + digit; firstWidth++; }
+                    case 1 -> { second = second * 10 + digit; secondWidth++; }
+                    default -> { third = third * 10 + digit; thirdWidth++; }
+                }
+            } else if (part < 2 && (part == 0 ? firstWidth : secondWidth) > 0) {
+                part++;
+            } else {
+                throw new IllegalArgumentException("Invalid date");
+            }
+        }
+        if (thirdWidth == 0 || firstWidth > 4 || secondWidth > 4 || thirdWidth > 4) {
+            throw new IllegalArgumentException("Invalid date");
+        }
+
+        return switch (order) {
+            case DAY_MONTH_YEAR -> LocalDate.of(year(third, thirdWidth), second, first);
+            case MONTH_DAY_YEAR -> LocalDate.of(year(third, thirdWidth), first, second);
+            case YEAR_MONTH_DAY -> LocalDate.of(year(first, firstWidth), second, third);
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private static int year(int value, int width) {
+        return width <= 2 ? 2000 + value : value;
+    }
+
+    private int read() throws IOException {
+        if (pushback != NO_CHAR) {
+            int c = pushback;
+            pushback = NO_CHAR;
+            return c;
+        }
+        if (position == limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+
+    private void append(char c) {
+        if (length == chars.length) {
+            chars = Arrays.copyOf(chars, length * 2);
+        }
+        chars[length++] = c;
+    }
+
+    private void endField(int start) {
+        if (fieldCount == starts.length) {
+            starts = Arrays.copyOf(starts, fieldCount * 2);
+            ends = Arrays.copyOf(ends, fieldCount * 2);
+        }
+        starts[fieldCount] = start;
+        ends[fieldCount] = length;
+        fieldCount++;
+    }
+
+    private boolean isBlank(int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!Character.isWhitespace(chars[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int trimmedStart(int field) {
+        checkField(field);
+        int start = starts[field];
+        int end = ends[field];
+        while (start < end && Character.isWhitespace(chars[start])) {
+            start++;
+        }
+        return start;
+    }
+
+    private int trimmedEnd(int field) {
+        checkField(field);
+        int start = starts[field];
+        int end = ends[field];
+        while (end > start && Character.isWhitespace(chars[end - 1])) {
+            end--;
+        }
+        return end;
+    }
+
+    private void checkField(int field) {
+        if (field < 0 || field >= fieldCount) {
+            throw new IllegalArgumentException("Record has no column " + (field + 1));
+        }
+    }
+}
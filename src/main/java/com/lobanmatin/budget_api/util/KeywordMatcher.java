@@ -0,0 +1,196 @@
+package com.lobanmatin.budget_api.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Aho–Corasick automaton over a set of keywords, finds the best keyword in a text in one pass however many
+ * keywords there are. Matching is case insensitive and keywords only match whole words, so {@code uber} matches
+ * {@code UBER *TRIP} but not {@code Tuberculosis}. Of the keywords found, the one with the highest priority wins,
+ * then the longest, then the first in the text. Immutable and thread safe once built.
+ */
+public class KeywordMatcher<T> {
+
+    private static final int ROOT = 0;
+    private static final int NONE = -1;
+
+    // Transitions of node n are labels[n] (sorted) to targets[n]
+    private final char[][] labels;
+    private final int[][] targets;
+    private final int[] failure;
+    // Keyword ending at the node, and the nearest node on the failure chain where another keyword ends
+    private final int[] keywordAt;
+    private final int[] nextOutput;
+
+    private final int[] lengths;
+    private final int[] priorities;
+    private final List<T> values;
+
+    private KeywordMatcher(Builder<T> builder) {
+        int nodeCount = builder.children.size();
+        labels = new char[nodeCount][];
+        targets = new int[nodeCount][];
+        for (int node = 0; node < nodeCount; node++) {
+            Map<Character, Integer> children = builder.children.get(node);
+            char[] nodeLabels = new char[children.size()];
+            int i = 0;
+            for (char label : children.keySet()) {
+                nodeLabels[i++] = label;
+            }
+            Arrays.sort(nodeLabels);
+            int[] nodeTargets = new int[nodeLabels.length];
+            for (i = 0; i < nodeLabels.length; i++) {
+                nodeTargets[i] = children.get(nodeLabels[i]);
+            }
+            labels[node] = nodeLabels;
+            targets[node] = nodeTargets;
+        }
+
+        keywordAt = builder.keywordAt.stream().mapToInt(Integer::intValue).toArray();
+        lengths = builder.lengths.stream().mapToInt(Integer::intValue).toArray();
+        priorities = builder.priorities.stream().mapToInt(Integer::intValue).toArray();
+        values = List.copyOf(builder.values);
+
+        // Breadth first, so the failure target of a node is always finished before the node itself
+        failure = new int[nodeCount];
+        nextOutput = new int[nodeCount];
+        nextOutput[ROOT] = NONE;
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int child : targets[ROOT]) {
+            failure[child] = ROOT;
+            nextOutput[child] = NONE;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.remove();
+            for (int i = 0; i < labels[node].length; i++) {
+                int child = targets[node][i];
+                int fallback = failure[node];
+                int next;
+                while ((next = child(fallback, labels[node][i])) == NONE && fallback != ROOT) {
+                    fallback = failure[fallback];
+                }
+                failure[child] = next == NONE ? ROOT : next;
+                nextOutput[child] = keywordAt[failure[child]] != NONE ? failure[child] : nextOutput[failure[child]];
+                queue.add(child);
+            }
+        }
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    /**
+     * Value of the best keyword found in the text, null when there is none.
+     */
+    public T find(CharSequence text) {
+        int best = NONE;
+        int state = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            int next;
+            while ((next = child(state, c)) == NONE && state != ROOT) {
+                state = failure[state];
+            }
+            state = next == NONE ? ROOT : next;
+
+            int output = keywordAt[state] != NONE ? state : nextOutput[state];
+            while (output != NONE) {
+                int keyword = keywordAt[output];
+                if (isWord(text, i + 1 - lengths[keyword], i + 1) && isBetter(keyword, best)) {
+                    best = keyword;
+                }
+                output = nextOutput[output];
+            }
+        }
+        return best == NONE ? null : values.get(best);
+    }
+
+    // Earlier matches win ties, so only strictly better keywords replace the current one
+    private boolean isBetter(int keyword, int best) {
+        if (best == NONE) {
+            return true;
+        }
+        if (priorities[keyword] != priorities[best]) {
+            return priorities[keyword] > priorities[best];
+        }
+        return lengths[keyword] > lengths[best];
+    }
+
+    private int child(int node, char c) {
+        int i = Arrays.binarySearch(labels[node], c);
+        return i >= 0 ? targets[node][i] : NONE;
+    }
+
+    private static boolean isWord(CharSequence text, int start, int end) {
+        return (start == 0 || !Character.isLetterOrDigit(text.charAt(start - 1)))
+                && (end == text.length() || !Character.isLetterOrDigit(text.charAt(end)));
+    }
+
+    public static class Builder<T> {
+        private final List<Map<Character, Integer>> children = new ArrayList<>();
+        private final List<Integer> keywordAt = new ArrayList<>();
+        private final List<Integer> lengths = new ArrayList<>();
+        private final List<Integer> priorities = new ArrayList<>();
+        private final List<T> values = new ArrayList<>();
+
+        private Builder() {
+            addNode();
+        }
+
+        /**
+         * Adds a keyword, surrounding whitespace is ignored. A keyword added twice keeps the value with the higher
+         * priority, or the first one on equal priority.
+         */
+        public Builder<T> add(String keyword, int priority, T value) {
+            String trimmed = keyword.trim();
+            if (trimmed.isEmpty()) {
+                throw new IllegalArgumentException("Keyword must not be blank");
+            }
+
+            int node = ROOT;
+            for (int i = 0; i < trimmed.length(); i++) {
+                // Per char lower casing keeps keyword and text offsets aligned, unlike String.toLowerCase
+                char c = Character.toLowerCase(trimmed.charAt(i));
+                Integer next = children.get(node).get(c);
+                if (next == null) {
+                    next = addNode();
+                    children.get(node).put(c, next);
+                }
+                node = next;
+            }
+
+            int existing = keywordAt.get(node);
+            if (existing == NONE) {
+                keywordAt.set(node, values.size());
+                lengths.add(trimmed.length());
+                priorities.add(priority);
+                values.add(value);
+            } else if (priority > priorities.get(existing)) {
+                priorities.set(existing, priority);
+                values.set(existing, value);
+            }
+            return this;
+        }
+
+        public KeywordMatcher<T> build() {
+            return new KeywordMatcher<>(this);
+        }
+
+        private int addNode() {
+            children.add(new HashMap<>());
+            keywordAt.add(NONE);
+            return children.size() - 1;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.lobanmatin.budget_api.util;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread between start and stop, so the
+ * number of queries behind one request can be measured. Threads that never called start are ignored.
+ */
+public class QueryCounter implements StatementInspector {
+
+    private final ThreadLocal<int[]> count = new ThreadLocal<>();
+
+    public void start() {
+        count.set(new int[1]);
+    }
+
+    public int stop() {
+        int[] current = count.get();
+        count.remove();
+        return current == null ? 0 : current[0];
+    }
+
+    @Override
+    public String inspect(String sql) {
+        int[] current = count.get();
+        if (current != null) {
+            current[0]++;
+        }
+        return sql;
+    }
+}
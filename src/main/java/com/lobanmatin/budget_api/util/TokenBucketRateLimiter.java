@@ -0,0 +1,92 @@
+package com.lobanmatin.budget_api.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock free token buckets keyed by string. Each bucket is a single timestamp, the time at which it will be full
+ * again, moved forward by one refill interval per request with a compare and set. A bucket whose timestamp has
+ * passed is full and indistinguishable from a new one, so idle buckets can be dropped without changing any outcome.
+ * Throttled buckets are never dropped. While every slot holds one, new keys share a single overflow bucket.
+ */
+public class TokenBucketRateLimiter {
+
+    private final long refillIntervalNanos;
+    private final long burstNanos;
+    private final int maxBuckets;
+    private final LongSupplier nanoClock;
+    private final long sweepIntervalNanos;
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong overflow;
+    private final AtomicLong nextSweepAt;
+
+    public TokenBucketRateLimiter(long capacity, double refillPerSecond, int maxBuckets) {
+        this(capacity, refillPerSecond, maxBuckets, System::nanoTime);
+    }
+
+    public TokenBucketRateLimiter(long capacity, double refillPerSecond, int maxBuckets, LongSupplier nanoClock) {
+        if (capacity < 1 || refillPerSecond <= 0 || maxBuckets < 1) {
+            throw new IllegalArgumentException("Capacity, refill rate and bucket count must be positive");
+        }
+        this.refillIntervalNanos = Math.max(1, (long) (1_000_000_000L / refillPerSecond));
+        this.burstNanos = capacity * refillIntervalNanos;
+        this.maxBuckets = maxBuckets;
+        this.nanoClock = nanoClock;
+        this.sweepIntervalNanos = Math.min(refillIntervalNanos, TimeUnit.SECONDS.toNanos(1));
+        long now = nanoClock.getAsLong();
+        this.overflow = new AtomicLong(now);
+        this.nextSweepAt = new AtomicLong(now);
+    }
+
+    /**
+     * Takes one token from the key's bucket. Returns 0 when the request may proceed, otherwise the nanoseconds
+     * until a token is available.
+     */
+    public long tryAcquire(String key) {
+        long now = nanoClock.getAsLong();
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = hasRoom(now) ? buckets.computeIfAbsent(key, k -> new AtomicLong(now)) : overflow;
+        }
+
+        while (true) {
+            long fullAt = bucket.get();
+            // Compared as a difference, nanoTime values may overflow
+            long next = (fullAt - now > 0 ? fullAt : now) + refillIntervalNanos;
+            long wait = next - now - burstNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket.compareAndSet(fullAt, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Drops buckets that have refilled completely.
+     */
+    public void evictIdle() {
+        long now = nanoClock.getAsLong();
+        buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    // Only full buckets make room, dropping a throttled one would reset its limit. One thread sweeps per interval,
+    // so a flood of new keys against a full map does not scan it on every request.
+    private boolean hasRoom(long now) {
+        if (buckets.size() < maxBuckets) {
+            return true;
+        }
+        long sweepAt = nextSweepAt.get();
+        if (now - sweepAt >= 0 && nextSweepAt.compareAndSet(sweepAt, now + sweepIntervalNanos)) {
+            buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+        }
+        return buckets.size() < maxBuckets;
+    }
+}
@@ -0,0 +1,14 @@
+CREATE TABLE spending_rollups (
+    user_id BIGINT NOT NULL,
+    year_month DATE NOT NULL,
+    category VARCHAR(255) NOT NULL,
+    total NUMERIC(38,2) NOT NULL,
+    expense_count BIGINT NOT NULL,
+    PRIMARY KEY (user_id, year_month, category),
+    CONSTRAINT fk_spending_rollups_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
+INSERT INTO spending_rollups (user_id, year_month, category, total, expense_count)
+SELECT user_id, CAST(DATE_TRUNC('month', date) AS DATE), category, SUM(amount), COUNT(*)
+FROM expenses
+GROUP BY user_id, CAST(DATE_TRUNC('month', date) AS DATE), category;
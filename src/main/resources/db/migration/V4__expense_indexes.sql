@@ -0,0 +1,9 @@
+-- Key lookups of the CSV import dedupe by (user_id, date), covering so the keys are read from the index alone.
+-- Not unique, expenses created one by one may repeat a date, amount and title.
+CREATE INDEX idx_expenses_dedupe ON expenses (user_id, date, amount, title);
+
+-- Expense listing, keyset pagination and date range reads
+CREATE INDEX idx_expenses_user_date_id ON expenses (user_id, date DESC, id DESC);
+
+-- Category filtered listing and pagination
+CREATE INDEX idx_expenses_user_category_date_id ON expenses (user_id, category, date DESC, id DESC);
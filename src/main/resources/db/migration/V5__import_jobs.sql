@@ -0,0 +1,26 @@
+CREATE TABLE import_jobs (
+    id UUID PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    format VARCHAR(20),
+    file_name VARCHAR(255),
+    rows_processed INT NOT NULL DEFAULT 0,
+    inserted INT NOT NULL DEFAULT 0,
+    duplicates INT NOT NULL DEFAULT 0,
+    malformed INT NOT NULL DEFAULT 0,
+    skipped INT NOT NULL DEFAULT 0,
+    error VARCHAR(1000),
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    started_at TIMESTAMP WITH TIME ZONE,
+    finished_at TIMESTAMP WITH TIME ZONE,
+    CONSTRAINT fk_import_jobs_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
+-- Startup looks up unfinished jobs
+CREATE INDEX idx_import_jobs_status ON import_jobs (status);
+
+CREATE TABLE import_job_files (
+    job_id UUID PRIMARY KEY,
+    content BYTEA NOT NULL,
+    CONSTRAINT fk_import_job_files_job FOREIGN KEY (job_id) REFERENCES import_jobs(id) ON DELETE CASCADE
+);
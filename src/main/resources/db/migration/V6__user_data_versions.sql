@@ -0,0 +1,7 @@
+CREATE TABLE user_data_versions (
+    user_id BIGINT PRIMARY KEY,
+    version BIGINT NOT NULL DEFAULT 0,
+    CONSTRAINT fk_user_data_versions_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
+INSERT INTO user_data_versions (user_id) SELECT id FROM users;
@@ -0,0 +1,42 @@
+-- Keyword rules for categorising imported expenses, rules without a user apply to everyone
+CREATE TABLE category_rules (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id BIGINT,
+    keyword VARCHAR(100) NOT NULL,
+    category VARCHAR(20) NOT NULL,
+    CONSTRAINT fk_category_rules_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_category_rules_user ON category_rules (user_id);
+
+INSERT INTO category_rules (keyword, category) VALUES
+    ('woolworths', 'FOOD'),
+    ('coles', 'FOOD'),
+    ('aldi', 'FOOD'),
+    ('iga', 'FOOD'),
+    ('mcdonalds', 'FOOD'),
+    ('uber eats', 'FOOD'),
+    ('menulog', 'FOOD'),
+    ('doordash', 'FOOD'),
+    ('uber', 'TRANSPORT'),
+    ('didi', 'TRANSPORT'),
+    ('opal', 'TRANSPORT'),
+    ('myki', 'TRANSPORT'),
+    ('go card', 'TRANSPORT'),
+    ('ampol', 'TRANSPORT'),
+    ('bp', 'TRANSPORT'),
+    ('shell', 'TRANSPORT'),
+    ('agl', 'UTILITIES'),
+    ('origin energy', 'UTILITIES'),
+    ('energyaustralia', 'UTILITIES'),
+    ('telstra', 'UTILITIES'),
+    ('optus', 'UTILITIES'),
+    ('netflix', 'ENTERTAINMENT'),
+    ('spotify', 'ENTERTAINMENT'),
+    ('stan', 'ENTERTAINMENT'),
+    ('hoyts', 'ENTERTAINMENT'),
+    ('event cinemas', 'ENTERTAINMENT'),
+    ('chemist warehouse', 'HEALTH'),
+    ('priceline', 'HEALTH'),
+    ('medibank', 'HEALTH'),
+    ('bupa', 'HEALTH');
@@ -0,0 +1,7 @@
+-- Instance running each import job and until when it holds the job. Unfinished jobs without a lease, such as
+-- those left by earlier versions, are free to be taken over
+ALTER TABLE import_jobs ADD COLUMN owner VARCHAR(64);
+ALTER TABLE import_jobs ADD COLUMN lease_expires_at TIMESTAMP WITH TIME ZONE;
+
+-- Lease expiry checks only look at unfinished jobs
+CREATE INDEX idx_import_jobs_unfinished_lease ON import_jobs (lease_expires_at) WHERE status IN ('QUEUED', 'RUNNING');
@@ -0,0 +1,4 @@
+-- Replicas refresh their blacklist filter with the tokens revoked since their last refresh
+ALTER TABLE revoked_tokens ADD COLUMN revoked_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP;
+
+CREATE INDEX idx_revoked_tokens_revoked_at ON revoked_tokens (revoked_at);
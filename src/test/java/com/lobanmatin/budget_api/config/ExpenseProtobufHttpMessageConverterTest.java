@@ -0,0 +1,85 @@
+package com.lobanmatin.budget_api.config;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.UnknownFieldSet;
+import com.lobanmatin.budget_api.dto.ExpensePage;
+import com.lobanmatin.budget_api.dto.ExpenseResponse;
+import com.lobanmatin.budget_api.model.Budget;
+import com.lobanmatin.budget_api.model.ExpenseCategory;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpenseProtobufHttpMessageConverterTest {
+
+    private final ExpenseProtobufHttpMessageConverter converter = new ExpenseProtobufHttpMessageConverter();
+
+    private UnknownFieldSet write(Object value) throws IOException {
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+        converter.write(value, ExpenseProtobufHttpMessageConverter.PROTOBUF, output);
+        return UnknownFieldSet.parseFrom(output.getBodyAsBytes());
+    }
+
+    // Test that a page decodes field by field as described in budget_api.proto
+    @Test
+    void write_shouldEncodeExpensePage() throws IOException {
+        ExpensePage page = new ExpensePage(List.of(
+                new ExpenseResponse(12L, "Café", new BigDecimal("-18.50"), ExpenseCategory.TRANSPORT, LocalDate.of(2025, 7, 7)),
+                new ExpenseResponse(11L, "Rent", new BigDecimal("1200.00"), ExpenseCategory.NA, LocalDate.of(1969, 12, 31))),
+                "MjAyNS0wNy0wMToxMg");
+
+        UnknownFieldSet message = write(page);
+
+        List<ByteString> items = message.getField(1).getLengthDelimitedList();
+        assertEquals(2, items.size());
+        assertEquals("MjAyNS0wNy0wMToxMg", message.getField(2).getLengthDelimitedList().get(0).toStringUtf8());
+
+        UnknownFieldSet first = UnknownFieldSet.parseFrom(items.get(0));
+        assertEquals(12L, first.getField(1).getVarintList().get(0));
+        assertEquals("Café", first.getField(2).getLengthDelimitedList().get(0).toStringUtf8());
+        assertEquals(-1850L, CodedInputStream.decodeZigZag64(first.getField(3).getVarintList().get(0)));
+        assertEquals(2L, first.getField(4).getVarintList().get(0));
+        assertEquals(LocalDate.of(2025, 7, 7).toEpochDay(),
+                CodedInputStream.decodeZigZag64(first.getField(5).getVarintList().get(0)));
+
+        UnknownFieldSet second = UnknownFieldSet.parseFrom(items.get(1));
+        assertEquals(7L, second.getField(4).getVarintList().get(0));
+        assertEquals(-1L, CodedInputStream.decodeZigZag64(second.getField(5).getVarintList().get(0)));
+    }
+
+    // Test that category limits are written as map entries keyed by category name
+    @Test
+    void write_shouldEncodeBudgetCategoryLimits() throws IOException {
+        Budget budget = Budget.builder()
+                .id(3L)
+                .totalLimit(new BigDecimal("1200.00"))
+                .totalIncome(new BigDecimal("5000.00"))
+                .categoryLimits(Map.of(ExpenseCategory.FOOD, new BigDecimal("300.00")))
+                .build();
+
+        UnknownFieldSet message = write(budget);
+
+        assertEquals(3L, message.getField(1).getVarintList().get(0));
+        assertEquals(120000L, CodedInputStream.decodeZigZag64(message.getField(2).getVarintList().get(0)));
+        UnknownFieldSet entry = UnknownFieldSet.parseFrom(message.getField(4).getLengthDelimitedList().get(0));
+        assertEquals("FOOD", entry.getField(1).getLengthDelimitedList().get(0).toStringUtf8());
+        assertEquals(30000L, CodedInputStream.decodeZigZag64(entry.getField(2).getVarintList().get(0)));
+    }
+
+    // Test that only the response types with a protobuf schema are offered, and never for reading
+    @Test
+    void canWrite_shouldOnlyAcceptSchemaTypes() {
+        assertTrue(converter.canWrite(ExpensePage.class, ExpenseProtobufHttpMessageConverter.PROTOBUF));
+        assertTrue(converter.canWrite(Budget.class, null));
+        assertFalse(converter.canWrite(ExpenseResponse.class, ExpenseProtobufHttpMessageConverter.PROTOBUF));
+        assertFalse(converter.canRead(ExpensePage.class, ExpenseProtobufHttpMessageConverter.PROTOBUF));
+    }
+}
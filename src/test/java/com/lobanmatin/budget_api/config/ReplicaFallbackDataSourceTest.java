@@ -0,0 +1,98 @@
+package com.lobanmatin.budget_api.config;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicaFallbackDataSourceTest {
+
+    private static final String LAG_QUERY = "SELECT seconds FROM replication_lag";
+
+    private DataSource primary;
+    private DataSource replica;
+
+    // Two separate in-memory databases, each answering with its own name
+    @BeforeEach
+    void setUp() {
+        primary = database("primary");
+        replica = database("replica");
+        new JdbcTemplate(replica).execute("CREATE TABLE replication_lag (seconds DOUBLE PRECISION)");
+        new JdbcTemplate(replica).update("INSERT INTO replication_lag VALUES (0.5)");
+    }
+
+    private static DataSource database(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE source (name VARCHAR(16))");
+        jdbcTemplate.update("INSERT INTO source VALUES (?)", name);
+        return dataSource;
+    }
+
+    private String readSource(ReplicaLagMonitor monitor, boolean readOnly) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primary);
+        dataSource.setReadOnlyDataSource(new ReplicaFallbackDataSource(replica, primary, monitor));
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transactionTemplate.setReadOnly(readOnly);
+        return transactionTemplate.execute(status ->
+                new JdbcTemplate(dataSource).queryForObject("SELECT name FROM source", String.class));
+    }
+
+    // Test that read-only transactions use the replica once it is caught up, others stay on the primary
+    @Test
+    void readOnlyTransaction_shouldUseReplicaWithinLagLimit() {
+        ReplicaLagMonitor monitor = new ReplicaLagMonitor(replica, LAG_QUERY, 5000);
+        monitor.check();
+
+        assertEquals("replica", readSource(monitor, true));
+        assertEquals("primary", readSource(monitor, false));
+        assertEquals(0.5, monitor.getLagSeconds());
+        assertEquals(1, monitor.getReplicaConnections());
+    }
+
+    // Test that reads stay on the primary until the replica lag has been checked once
+    @Test
+    void readOnlyTransaction_shouldUsePrimaryBeforeFirstCheck() {
+        ReplicaLagMonitor monitor = new ReplicaLagMonitor(replica, LAG_QUERY, 5000);
+
+        assertEquals("primary", readSource(monitor, true));
+        assertEquals(1, monitor.getPrimaryConnections());
+    }
+
+    // Test that reads fall back to the primary while the replica is too far behind
+    @Test
+    void readOnlyTransaction_shouldFallBackWhileReplicaLags() {
+        ReplicaLagMonitor monitor = new ReplicaLagMonitor(replica, LAG_QUERY, 5000);
+        new JdbcTemplate(replica).update("UPDATE replication_lag SET seconds = 12");
+        monitor.check();
+
+        assertFalse(monitor.isReplicaUsable());
+        assertEquals("primary", readSource(monitor, true));
+
+        new JdbcTemplate(replica).update("UPDATE replication_lag SET seconds = 0");
+        monitor.check();
+
+        assertEquals("replica", readSource(monitor, true));
+    }
+
+    // Test that a replica that cannot be queried is treated as unusable
+    @Test
+    void check_shouldMarkReplicaUnusableWhenLagQueryFails() {
+        ReplicaLagMonitor monitor = new ReplicaLagMonitor(replica, "SELECT seconds FROM missing_table", 5000);
+        monitor.check();
+
+        assertFalse(monitor.isReplicaUsable());
+        assertTrue(Double.isNaN(monitor.getLagSeconds()));
+        assertEquals("primary", readSource(monitor, true));
+    }
+}
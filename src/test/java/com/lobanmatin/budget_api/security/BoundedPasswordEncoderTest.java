@@ -0,0 +1,92 @@
+package com.lobanmatin.budget_api.security;
+
+import com.lobanmatin.budget_api.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedPasswordEncoderTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private BoundedPasswordEncoder encoder;
+
+    @AfterEach
+    void tearDown() {
+        encoder.shutdown();
+    }
+
+    // Test that hashes made on the pool verify and the time spent is recorded per operation
+    @Test
+    void encode_shouldHashOnPoolAndRecordLatency() {
+        encoder = new BoundedPasswordEncoder(4, 2, 10, meterRegistry);
+
+        String hash = encoder.encode("secret");
+
+        assertTrue(hash.startsWith("$2a$04$"));
+        assertTrue(encoder.matches("secret", hash));
+        assertFalse(encoder.matches("wrong", hash));
+        assertEquals(1, meterRegistry.get("password.hash").tag("operation", "encode").timer().count());
+        assertEquals(2, meterRegistry.get("password.hash").tag("operation", "matches").timer().count());
+    }
+
+    // Test that hashes made with another cost, lower or higher, are flagged for rehashing
+    @Test
+    void upgradeEncoding_shouldFlagOtherCosts() {
+        encoder = new BoundedPasswordEncoder(5, 1, 1, meterRegistry);
+
+        assertFalse(encoder.upgradeEncoding(new BCryptPasswordEncoder(5).encode("secret")));
+        assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("secret")));
+        assertTrue(encoder.upgradeEncoding("$2b$12$abcdefghijklmnopqrstuu"));
+        assertFalse(encoder.upgradeEncoding("not a bcrypt hash"));
+        assertFalse(encoder.upgradeEncoding(null));
+    }
+
+    // Test that a hash beyond the busy thread and the full queue is rejected instead of waiting
+    @Test
+    void encode_shouldFailFastWhenQueueIsFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        encoder = new BoundedPasswordEncoder(new BlockingEncoder(started, release), 4, 1, 1, meterRegistry);
+
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("first"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("second"));
+        while (meterRegistry.get("password.hash.queue.size").gauge().value() < 1) {
+            Thread.onSpinWait();
+        }
+
+        ServiceUnavailableException ex = assertThrows(ServiceUnavailableException.class, () -> encoder.encode("third"));
+
+        assertEquals(1, ex.getRetryAfterSeconds());
+        release.countDown();
+        assertEquals("hashed:first", running.get(5, TimeUnit.SECONDS));
+        assertEquals("hashed:second", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    private record BlockingEncoder(CountDownLatch started, CountDownLatch release) implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "hashed:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encode(rawPassword).equals(encodedPassword);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.lobanmatin.budget_api.security;
+
+import com.lobanmatin.budget_api.model.Role;
+import com.lobanmatin.budget_api.model.User;
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtUtilTest {
+
+    private JwtUtil jwtUtil;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "SECRET_KEY",
+                Base64.getEncoder().encodeToString("0123456789abcdef0123456789abcdef".getBytes()));
+        ReflectionTestUtils.setField(jwtUtil, "EXPIRATION_TIME", 60_000L);
+        ReflectionTestUtils.setField(jwtUtil, "CACHE_MAX_SIZE", 2);
+        jwtUtil.init();
+    }
+
+    private CustomUserDetails userDetails(Long id, Role role) {
+        User user = new User("user@example.com", "hashed-password", role);
+        user.setId(id);
+        return new CustomUserDetails(user);
+    }
+
+    // Test that the principal can be rebuilt from the login claims without a user lookup
+    @Test
+    void extractUserDetails_shouldRebuildPrincipalFromClaims() {
+        CustomUserDetails original = userDetails(42L, Role.ADMIN);
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("userId", original.getId());
+        claims.put("role", original.getRole());
+
+        String token = jwtUtil.generateToken(claims, original);
+        Claims parsed = jwtUtil.validateAndGetClaims(token).orElseThrow();
+        CustomUserDetails rebuilt = jwtUtil.extractUserDetails(parsed).orElseThrow();
+
+        assertEquals(42L, rebuilt.getId());
+        assertEquals("user@example.com", rebuilt.getUsername());
+        assertEquals(Role.ADMIN, rebuilt.getRole());
+        assertEquals("ROLE_ADMIN", rebuilt.getAuthorities().iterator().next().getAuthority());
+    }
+
+    @Test
+    void extractUserDetails_shouldBeEmptyWithoutIdentityClaims() {
+        String token = jwtUtil.generateToken(new HashMap<>(), userDetails(42L, Role.USER));
+        Claims parsed = jwtUtil.validateAndGetClaims(token).orElseThrow();
+
+        assertEquals(Optional.empty(), jwtUtil.extractUserDetails(parsed));
+    }
+
+    @Test
+    void validateAndGetClaims_shouldRejectTamperedToken() {
+        String token = jwtUtil.generateToken(new HashMap<>(), userDetails(42L, Role.USER));
+
+        assertTrue(jwtUtil.validateAndGetClaims(token + "x").isEmpty());
+    }
+
+    // Test that a repeated token is served from the cache and the cache stays within its bound
+    @Test
+    void validateAndGetClaims_shouldCacheVerifiedTokens() {
+        String first = jwtUtil.generateToken(Map.of("userId", 1L), userDetails(1L, Role.USER));
+
+        jwtUtil.validateAndGetClaims(first);
+        Claims cached = jwtUtil.validateAndGetClaims(first).orElseThrow();
+
+        assertEquals(1, jwtUtil.getCacheMisses());
+        assertEquals(1, jwtUtil.getCacheHits());
+        assertEquals("user@example.com", cached.getSubject());
+
+        jwtUtil.validateAndGetClaims(jwtUtil.generateToken(Map.of("userId", 2L), userDetails(2L, Role.USER)));
+        String third = jwtUtil.generateToken(Map.of("userId", 3L), userDetails(3L, Role.USER));
+        assertTrue(jwtUtil.validateAndGetClaims(third).isPresent());
+        assertEquals(2, jwtUtil.getCacheSize());
+    }
+
+    // Test that the sweep drops expired tokens and keeps live ones
+    @Test
+    void evictExpired_shouldDropOnlyExpiredTokens() throws InterruptedException {
+        ReflectionTestUtils.setField(jwtUtil, "EXPIRATION_TIME", 1_000L);
+        jwtUtil.validateAndGetClaims(jwtUtil.generateToken(Map.of("userId", 1L), userDetails(1L, Role.USER)));
+        ReflectionTestUtils.setField(jwtUtil, "EXPIRATION_TIME", 60_000L);
+        jwtUtil.validateAndGetClaims(jwtUtil.generateToken(Map.of("userId", 2L), userDetails(2L, Role.USER)));
+        assertEquals(2, jwtUtil.getCacheSize());
+
+        // Expiry is stored in whole seconds, so the short lived token has expired after one second
+        Thread.sleep(1_100);
+        jwtUtil.evictExpired();
+        assertEquals(1, jwtUtil.getCacheSize());
+    }
+
+    @Test
+    void validateAndGetClaims_shouldNotCacheInvalidTokens() {
+        String token = jwtUtil.generateToken(new HashMap<>(), userDetails(42L, Role.USER)) + "x";
+
+        jwtUtil.validateAndGetClaims(token);
+        assertTrue(jwtUtil.validateAndGetClaims(token).isEmpty());
+
+        assertEquals(0, jwtUtil.getCacheHits());
+        assertEquals(0, jwtUtil.getCacheSize());
+    }
+}
@@ -0,0 +1,97 @@
+package com.lobanmatin.budget_api.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lobanmatin.budget_api.model.Role;
+import com.lobanmatin.budget_api.model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitFilterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("rate-limit.auth.capacity", "2")
+                .withProperty("rate-limit.auth.refill-per-second", "0.1")
+                .withProperty("rate-limit.read.capacity", "1")
+                .withProperty("rate-limit.read.refill-per-second", "1");
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new RateLimitFilter(environment, new ObjectMapper(), meterRegistry, true, 1000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private MockHttpServletResponse send(String method, String path, String remoteAddr) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setServletPath(path);
+        request.setRemoteAddr(remoteAddr);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private void signIn(long userId) {
+        User user = new User("user" + userId + "@example.com", "hashed-password", Role.USER);
+        user.setId(userId);
+        CustomUserDetails userDetails = new CustomUserDetails(user);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities()));
+    }
+
+    // Test that logins over the limit get 429 with Retry-After, while other IPs are unaffected
+    @Test
+    void doFilter_shouldRejectLoginsOverLimitPerIp() throws Exception {
+        assertEquals(200, send("POST", "/auth/login", "10.0.0.1").getStatus());
+        assertEquals(200, send("POST", "/auth/login", "10.0.0.1").getStatus());
+
+        MockHttpServletResponse rejected = send("POST", "/auth/login", "10.0.0.1");
+
+        assertEquals(429, rejected.getStatus());
+        assertEquals("10", rejected.getHeader("Retry-After"));
+        assertTrue(rejected.getContentAsString().contains("Too Many Requests"));
+        assertEquals(1.0, meterRegistry.get("rate.limit.rejections").tag("class", "auth").counter().count());
+        assertEquals(200, send("POST", "/auth/login", "10.0.0.2").getStatus());
+    }
+
+    // Test that signed in users are limited by user id, not by the address they share
+    @Test
+    void doFilter_shouldLimitSignedInUsersSeparately() throws Exception {
+        signIn(1L);
+        assertEquals(200, send("GET", "/expenses", "10.0.0.1").getStatus());
+        assertEquals(429, send("GET", "/expenses", "10.0.0.1").getStatus());
+
+        signIn(2L);
+        assertEquals(200, send("GET", "/expenses", "10.0.0.1").getStatus());
+    }
+
+    // Test that requests are sorted into the configured endpoint classes
+    @Test
+    void classify_shouldSortRequestsByEndpointClass() {
+        assertEquals(RateLimitFilter.EndpointClass.AUTH, RateLimitFilter.classify(request("POST", "/auth/register")));
+        assertEquals(RateLimitFilter.EndpointClass.IMPORT, RateLimitFilter.classify(request("POST", "/expenses/upload")));
+        assertEquals(RateLimitFilter.EndpointClass.READ, RateLimitFilter.classify(request("GET", "/expenses/upload/123")));
+        assertEquals(RateLimitFilter.EndpointClass.WRITE, RateLimitFilter.classify(request("DELETE", "/expenses/7")));
+    }
+
+    private static MockHttpServletRequest request(String method, String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setServletPath(path);
+        return request;
+    }
+}
@@ -1,6 +1,9 @@
 package com.lobanmatin.budget_api.service;
 
 import com.lobanmatin.budget_api.dto.BudgetRequest;
+import com.lobanmatin.budget_api.dto.BudgetStatus;
+import com.lobanmatin.budget_api.dto.BudgetStatusRow;
+import com.lobanmatin.budget_api.dto.CategoryStatus;
 import com.lobanmatin.budget_api.exception.ResourceNotFoundException;
 import com.lobanmatin.budget_api.model.Budget;
 import com.lobanmatin.budget_api.model.ExpenseCategory;
@@ -16,11 +19,14 @@ import java.math.BigDecimal;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 import java.util.Optional;
 import com.lobanmatin.budget_api.model.User;
+import java.time.LocalDate;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @ExtendWith(MockitoExtension.class)
@@ -29,6 +35,9 @@ class BudgetServiceTest {
     @Mock
     private BudgetRepository budgetRepository;
 
+    @Mock
+    private DataVersionService dataVersionService;
+
     @InjectMocks
     private BudgetService budgetService;
 
@@ -143,6 +152,7 @@ class BudgetServiceTest {
         assertEquals(newLimit, existingBudget.getTotalLimit());
 
         verify(budgetRepository, times(1)).save(existingBudget);
+        verify(dataVersionService).bump(userId);
     }
 
     @Test
@@ -166,6 +176,7 @@ class BudgetServiceTest {
         );
 
         verify(budgetRepository, never()).save(any());
+        verifyNoInteractions(dataVersionService);
     }
 
     @Test
@@ -244,4 +255,49 @@ class BudgetServiceTest {
 
         verify(budgetRepository, never()).save(any());
     }
+
+    @Test
+    void getBudgetStatus_shouldComputeRemainingAndPercentUsed() {
+        Long userId = 1L;
+
+        when(budgetRepository.findStatusByUserId(eq(userId), any(LocalDate.class))).thenReturn(List.of(
+                statusRow("FOOD", new BigDecimal("500"), new BigDecimal("412.35")),
+                statusRow("TRANSPORT", new BigDecimal("200"), new BigDecimal("250.00"))));
+
+        BudgetStatus status = budgetService.getBudgetStatus(userId);
+
+        assertEquals(new BigDecimal("1200"), status.getTotalLimit());
+        assertEquals(new BigDecimal("537.65"), status.getTotalRemaining());
+        assertEquals(new BigDecimal("55.20"), status.getTotalPercentUsed());
+        assertEquals(2, status.getCategories().size());
+
+        CategoryStatus food = status.getCategories().get(0);
+        assertEquals(ExpenseCategory.FOOD, food.getCategory());
+        assertEquals(new BigDecimal("87.65"), food.getRemaining());
+        assertEquals(new BigDecimal("82.47"), food.getPercentUsed());
+
+        CategoryStatus transport = status.getCategories().get(1);
+        assertEquals(new BigDecimal("-50.00"), transport.getRemaining());
+        assertEquals(new BigDecimal("125.00"), transport.getPercentUsed());
+    }
+
+    @Test
+    void getBudgetStatus_shouldThrowIfBudgetDoesNotExist() {
+        Long userId = 1L;
+
+        when(budgetRepository.findStatusByUserId(eq(userId), any(LocalDate.class))).thenReturn(List.of());
+
+        assertThrows(ResourceNotFoundException.class, () -> budgetService.getBudgetStatus(userId));
+    }
+
+    private static BudgetStatusRow statusRow(String category, BigDecimal limit, BigDecimal spent) {
+        return new BudgetStatusRow() {
+            public BigDecimal getTotalLimit() { return new BigDecimal("1200"); }
+            public BigDecimal getTotalIncome() { return new BigDecimal("5000"); }
+            public BigDecimal getTotalSpent() { return new BigDecimal("662.35"); }
+            public String getCategory() { return category; }
+            public BigDecimal getCategoryLimit() { return limit; }
+            public BigDecimal getCategorySpent() { return spent; }
+        };
+    }
 }
@@ -0,0 +1,84 @@
+package com.lobanmatin.budget_api.service;
+
+import com.lobanmatin.budget_api.dto.CategoryRuleRequest;
+import com.lobanmatin.budget_api.model.CategoryRule;
+import com.lobanmatin.budget_api.model.ExpenseCategory;
+import com.lobanmatin.budget_api.model.Role;
+import com.lobanmatin.budget_api.model.User;
+import com.lobanmatin.budget_api.repository.CategoryRuleRepository;
+import com.lobanmatin.budget_api.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CategoryRuleServiceTest {
+
+    @Mock
+    private CategoryRuleRepository ruleRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private CategoryRuleService categoryRuleService;
+
+    @BeforeEach
+    void setUp() {
+        categoryRuleService = new CategoryRuleService(ruleRepository, userRepository,
+                new TransactionTemplate(transactionManager), 2, 100, 60000);
+    }
+
+    private static CategoryRuleRequest request(String keyword, ExpenseCategory category) {
+        CategoryRuleRequest request = new CategoryRuleRequest();
+        request.setKeyword(keyword);
+        request.setCategory(category);
+        return request;
+    }
+
+    // Test that the limit is checked while the user row is locked, and a rule over the limit is not saved
+    @Test
+    void addRule_shouldRejectRuleOverLimitUnderUserLock() {
+        when(userRepository.lockById(1L)).thenReturn(Optional.of(new User("user@example.com", "hashed", Role.USER)));
+        when(ruleRepository.countByUserId(1L)).thenReturn(2L);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> categoryRuleService.addRule(1L, request("uber", ExpenseCategory.TRANSPORT)));
+
+        verify(userRepository).lockById(1L);
+        verify(ruleRepository, never()).save(any());
+        verify(transactionManager).rollback(any());
+    }
+
+    // Test that a matcher compiled from rules read before a concurrent change is not cached
+    @Test
+    void getMatcher_shouldNotCacheMatcherCompiledBeforeInvalidation() {
+        when(userRepository.lockById(1L)).thenReturn(Optional.of(new User("user@example.com", "hashed", Role.USER)));
+        when(ruleRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(ruleRepository.findByUserIdIsNullOrderById()).thenReturn(List.of());
+        // The rule is added while the first compile is reading the user's rules
+        when(ruleRepository.findByUserIdOrderById(1L))
+                .thenAnswer(invocation -> {
+                    categoryRuleService.addRule(1L, request("uber", ExpenseCategory.TRANSPORT));
+                    return List.of();
+                })
+                .thenReturn(List.of(new CategoryRule(1L, 1L, "uber", ExpenseCategory.TRANSPORT)));
+
+        assertNull(categoryRuleService.getMatcher(1L).find("UBER TRIP"));
+        assertEquals(ExpenseCategory.TRANSPORT, categoryRuleService.getMatcher(1L).find("UBER TRIP"));
+        assertEquals(ExpenseCategory.TRANSPORT, categoryRuleService.getMatcher(1L).find("UBER TRIP"));
+        verify(ruleRepository, times(2)).findByUserIdOrderById(1L);
+    }
+}
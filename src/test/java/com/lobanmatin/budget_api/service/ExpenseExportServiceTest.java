@@ -0,0 +1,126 @@
+package com.lobanmatin.budget_api.service;
+
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.lobanmatin.budget_api.dto.ExpenseResponse;
+import com.lobanmatin.budget_api.model.CsvProfile;
+import com.lobanmatin.budget_api.model.ExpenseCategory;
+import com.lobanmatin.budget_api.model.ExportFormat;
+import com.lobanmatin.budget_api.util.CsvReader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExpenseExportServiceTest {
+
+    @Mock
+    private ExpenseService expenseService;
+
+    private ExpenseExportService expenseExportService;
+
+    @BeforeEach
+    void setUp() {
+        // Spring Boot writes dates as ISO strings
+        expenseExportService = new ExpenseExportService(expenseService, Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build(), 2);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubExpenses(ExpenseResponse... expenses) {
+        doAnswer(invocation -> {
+            Consumer<ExpenseResponse> consumer = invocation.getArgument(4);
+            for (ExpenseResponse expense : expenses) {
+                consumer.accept(expense);
+            }
+            return null;
+        }).when(expenseService).streamExpenses(eq(1L), any(), any(), any(), any());
+    }
+
+    // Test that every expense is written as one JSON object on its own line
+    @Test
+    void writeNdjson_shouldWriteOneObjectPerLine() throws IOException {
+        stubExpenses(
+                new ExpenseResponse(12L, "Dinner", new BigDecimal("30.00"), ExpenseCategory.FOOD, LocalDate.of(2025, 7, 2)),
+                new ExpenseResponse(7L, "Train", new BigDecimal("4.20"), ExpenseCategory.TRANSPORT, LocalDate.of(2025, 7, 1)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        expenseExportService.writeNdjson(1L, null, null, null, out);
+
+        assertEquals("""
+                {"id":12,"title":"Dinner","amount":30.00,"category":"FOOD","date":"2025-07-02"}
+                {"id":7,"title":"Train","amount":4.20,"category":"TRANSPORT","date":"2025-07-01"}
+                """, out.toString(StandardCharsets.UTF_8));
+    }
+
+    // Test that a user without expenses gets an empty body rather than an empty JSON array
+    @Test
+    void writeNdjson_shouldWriteNothingWithoutExpenses() throws IOException {
+        stubExpenses();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        expenseExportService.writeNdjson(1L, null, null, null, out);
+
+        assertEquals(0, out.size());
+    }
+
+    // Test that a CSV export reads back with the DEFAULT upload profile, including titles that need quoting
+    @Test
+    void writeExport_csvShouldRoundTripThroughUploadProfile() throws IOException {
+        stubExpenses(
+                new ExpenseResponse(12L, "Dinner, \"Luigi's\"", new BigDecimal("30.00"), ExpenseCategory.FOOD, LocalDate.of(2025, 7, 2)),
+                new ExpenseResponse(7L, "Train", new BigDecimal("4.20"), ExpenseCategory.TRANSPORT, LocalDate.of(2025, 12, 31)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        expenseExportService.writeExport(1L, ExportFormat.CSV, true, null, null, null, out);
+
+        CsvReader reader = new CsvReader(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())), StandardCharsets.UTF_8));
+        assertTrue(reader.next());
+        assertEquals(CsvProfile.DEFAULT, CsvProfile.detect(reader));
+
+        assertTrue(reader.next());
+        assertEquals(LocalDate.of(2025, 7, 2), reader.getDate(0, CsvProfile.DEFAULT.getDateOrder()));
+        assertEquals(new BigDecimal("30.00"), CsvProfile.DEFAULT.toExpenseAmount(reader));
+        assertEquals("Dinner, \"Luigi's\"", reader.getString(2));
+
+        assertTrue(reader.next());
+        assertEquals(LocalDate.of(2025, 12, 31), reader.getDate(0, CsvProfile.DEFAULT.getDateOrder()));
+        assertEquals("Train", reader.getString(2));
+        assertFalse(reader.next());
+    }
+
+    // Test that columnar exports split the rows into groups of column arrays
+    @Test
+    void writeExport_columnarShouldWriteRowGroups() throws IOException {
+        stubExpenses(
+                new ExpenseResponse(3L, "Coffee", new BigDecimal("4.50"), ExpenseCategory.FOOD, LocalDate.of(2025, 7, 3)),
+                new ExpenseResponse(2L, "Bus", new BigDecimal("3.10"), ExpenseCategory.TRANSPORT, LocalDate.of(2025, 7, 2)),
+                new ExpenseResponse(1L, "Lunch", new BigDecimal("12.00"), ExpenseCategory.FOOD, LocalDate.of(2025, 7, 1)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        expenseExportService.writeExport(1L, ExportFormat.COLUMNAR, false, null, null, null, out);
+
+        assertEquals("""
+                {"id":[3,2],"date":["2025-07-03","2025-07-02"],"amount":[4.50,3.10],"category":["FOOD","TRANSPORT"],"title":["Coffee","Bus"]}
+                {"id":[1],"date":["2025-07-01"],"amount":[12.00],"category":["FOOD"],"title":["Lunch"]}
+                """, out.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,63 @@
+package com.lobanmatin.budget_api.service;
+
+import com.lobanmatin.budget_api.model.Expense;
+import com.lobanmatin.budget_api.model.ExpenseCategory;
+import com.lobanmatin.budget_api.repository.ExpenseJdbcRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExpensePurgeServiceTest {
+
+    @Mock
+    private ExpenseJdbcRepository expenseJdbcRepository;
+
+    @Mock
+    private SpendingRollupService rollupService;
+
+    @Mock
+    private DataVersionService dataVersionService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private static Expense expense(String amount) {
+        return Expense.builder()
+                .date(LocalDate.of(2025, 7, 1))
+                .amount(new BigDecimal(amount))
+                .category(ExpenseCategory.FOOD)
+                .build();
+    }
+
+    // Test that every chunk takes its own expenses out of the rollups, and the purge stops after a short chunk
+    @Test
+    void purgeAllExpenses_shouldRemoveRollupsWithEveryChunk() {
+        ExpensePurgeService purgeService = new ExpensePurgeService(expenseJdbcRepository, rollupService,
+                dataVersionService, new TransactionTemplate(transactionManager), 2);
+        List<Expense> first = List.of(expense("10"), expense("20"));
+        List<Expense> second = List.of(expense("5"));
+        when(expenseJdbcRepository.deleteChunk(1L, 2)).thenReturn(first, second);
+
+        purgeService.purgeAllExpenses(1L);
+
+        InOrder inOrder = inOrder(expenseJdbcRepository, rollupService);
+        inOrder.verify(expenseJdbcRepository).deleteChunk(1L, 2);
+        inOrder.verify(rollupService).removeAll(1L, first);
+        inOrder.verify(expenseJdbcRepository).deleteChunk(1L, 2);
+        inOrder.verify(rollupService).removeAll(1L, second);
+        verify(rollupService, never()).deleteAll(any());
+        verify(dataVersionService, times(2)).bump(1L);
+        verify(transactionManager, times(2)).commit(any());
+    }
+}
@@ -1,4 +1,461 @@
 package com.lobanmatin.budget_api.service;
 
-public class ExpenseServiceTest {
+import com.lobanmatin.budget_api.dto.CategorisationReport;
+import com.lobanmatin.budget_api.dto.CategoryChange;
+import com.lobanmatin.budget_api.dto.ExpenseCursor;
+import com.lobanmatin.budget_api.dto.ExpenseKey;
+import com.lobanmatin.budget_api.dto.ExpensePage;
+import com.lobanmatin.budget_api.dto.ExpenseResponse;
+import com.lobanmatin.budget_api.dto.ImportReport;
+import com.lobanmatin.budget_api.dto.SpendingTotal;
+import com.lobanmatin.budget_api.model.CategoryRule;
+import com.lobanmatin.budget_api.model.CsvProfile;
+import com.lobanmatin.budget_api.model.Expense;
+import com.lobanmatin.budget_api.model.ExpenseCategory;
+import com.lobanmatin.budget_api.model.Role;
+import com.lobanmatin.budget_api.model.User;
+import com.lobanmatin.budget_api.repository.CategoryRuleRepository;
+import com.lobanmatin.budget_api.repository.ExpenseJdbcRepository;
+import com.lobanmatin.budget_api.repository.ExpenseRepository;
+import com.lobanmatin.budget_api.repository.UserRepository;
+import com.lobanmatin.budget_api.security.CustomUserDetails;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExpenseServiceTest {
+
+    @Mock
+    private ExpenseRepository expenseRepository;
+
+    @Mock
+    private ExpenseJdbcRepository expenseJdbcRepository;
+
+    @Mock
+    private SpendingRollupService rollupService;
+
+    @Mock
+    private ExpensePurgeService expensePurgeService;
+
+    @Mock
+    private DataVersionService dataVersionService;
+
+    @Mock
+    private CategoryRuleRepository categoryRuleRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ExpenseService expenseService;
+
+    @BeforeEach
+    void setUp() {
+        expenseService = new ExpenseService(expenseRepository, expenseJdbcRepository, rollupService,
+                expensePurgeService, dataVersionService, new CategoryRuleService(categoryRuleRepository,
+                        mock(UserRepository.class), new TransactionTemplate(transactionManager), 500, 100, 60000),
+                new TransactionTemplate(transactionManager), 2, 1000);
+    }
+
+    private static MockMultipartFile csv(String content) {
+        return new MockMultipartFile("file", "expenses.csv", "text/csv", content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Test that rows are written in batches and the report counts every row
+    @Test
+    void uploadExpensesFromCSV_shouldInsertInBatches() {
+        Long userId = 1L;
+        when(expenseRepository.findKeysByUserIdAndDateBetween(eq(userId), any(), any())).thenReturn(List.of());
+
+        ImportReport report = expenseService.uploadExpensesFromCSV(userId, csv("""
+                Date,Amount,Description
+                1/07/2025,-10.00,Coffee
+                2/07/2025,-20.50,Groceries
+                3/07/2025,-5,Bus
+                """));
+
+        assertEquals(3, report.getInserted());
+        assertEquals(0, report.getDuplicates());
+        assertEquals(0, report.getMalformed());
+        verify(expenseJdbcRepository, times(2)).batchInsert(eq(userId), anyList());
+        verify(rollupService, times(2)).addAll(eq(userId), anyList());
+        verify(dataVersionService, times(2)).bumpAndGet(userId);
+        verify(expenseRepository, never()).save(any());
+    }
+
+    // Test that existing rows and rows repeated within the file are reported as duplicates
+    @Test
+    void uploadExpensesFromCSV_shouldSkipDuplicates() {
+        Long userId = 1L;
+        when(expenseRepository.findKeysByUserIdAndDateBetween(eq(userId), any(), any()))
+                .thenReturn(List.of(new ExpenseKey(LocalDate.of(2025, 7, 1), new BigDecimal("10"), "Coffee")));
+
+        ImportReport report = expenseService.uploadExpensesFromCSV(userId, csv("""
+                1/07/2025,-10.00,Coffee
+                2/07/2025,-20.50,Groceries
+                2/07/2025,-20.5,Groceries
+                """));
+
+        assertEquals(1, report.getInserted());
+        assertEquals(2, report.getDuplicates());
+        assertEquals(List.of(1, 3), report.getDuplicateLines());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Expense>> captor = ArgumentCaptor.forClass(List.class);
+        verify(expenseJdbcRepository).batchInsert(eq(userId), captor.capture());
+        assertEquals("Groceries", captor.getValue().get(0).getTitle());
+    }
+
+    // Test that keys are reloaded when another write committed since they were loaded, and rows stored by it are skipped
+    @Test
+    void uploadExpensesFromCSV_shouldRecheckKeysAfterConcurrentWrite() {
+        Long userId = 1L;
+        when(dataVersionService.getVersion(userId)).thenReturn(5L);
+        when(dataVersionService.bumpAndGet(userId)).thenReturn(7L);
+        when(expenseRepository.findKeysByUserIdAndDateBetween(eq(userId), any(), any()))
+                .thenReturn(List.of())
+                .thenReturn(List.of(new ExpenseKey(LocalDate.of(2025, 7, 1), new BigDecimal("10"), "Coffee")));
+
+        ImportReport report = expenseService.uploadExpensesFromCSV(userId, csv("""
+                1/07/2025,-10.00,Coffee
+                2/07/2025,-20.50,Groceries
+                """));
+
+        assertEquals(1, report.getInserted());
+        assertEquals(List.of(1), report.getDuplicateLines());
+        verify(expenseRepository, times(2)).findKeysByUserIdAndDateBetween(eq(userId), any(), any());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Expense>> captor = ArgumentCaptor.forClass(List.class);
+        verify(rollupService).addAll(eq(userId), captor.capture());
+        assertEquals(1, captor.getValue().size());
+        assertEquals("Groceries", captor.getValue().get(0).getTitle());
+    }
+
+    // Test that unparseable rows are reported with their line numbers rather than aborting the import
+    @Test
+    void uploadExpensesFromCSV_shouldReportMalformedLines() {
+        Long userId = 1L;
+        when(expenseRepository.findKeysByUserIdAndDateBetween(eq(userId), any(), any())).thenReturn(List.of());
+
+        ImportReport report = expenseService.uploadExpensesFromCSV(userId, csv("""
+                Date,Amount,Description
+                1/07/2025,abc,Coffee
+                2/07/2025
+                3/07/2025,-5,Bus
+                """));
+
+        assertEquals(1, report.getInserted());
+        assertEquals(2, report.getMalformed());
+        assertEquals(List.of(2, 3), report.getMalformedLines());
+    }
+
+    // Test that quoted titles keep their commas and formatted amounts are parsed
+    @Test
+    void uploadExpensesFromCSV_shouldParseQuotedFields() {
+        Long userId = 1L;
+        when(expenseRepository.findKeysByUserIdAndDateBetween(eq(userId), any(), any())).thenReturn(List.of());
+
+        ImportReport report = expenseService.uploadExpensesFromCSV(userId, csv(
+                "1/07/2025,\"-$1,234.50\",\"Smith, Jones \"\"Lawyers\"\"\"\r\n"));
+
+        assertEquals(1, report.getInserted());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Expense>> captor = ArgumentCaptor.forClass(List.class);
+        verify(expenseJdbcRepository).batchInsert(eq(userId), captor.capture());
+        Expense expense = captor.getValue().get(0);
+        assertEquals("Smith, Jones \"Lawyers\"", expense.getTitle());
+        assertEquals(new BigDecimal("1234.50"), expense.getAmount());
+        assertEquals(LocalDate.of(2025, 7, 1), expense.getDate());
+    }
+
+    // Test that a bank profile is detected from the header and its income rows are skipped
+    @Test
+    void uploadExpensesFromCSV_shouldDetectProfileFromHeader() {
+        Long userId = 1L;
+        when(expenseRepository.findKeysByUserIdAndDateBetween(eq(userId), any(), any())).thenReturn(List.of());
+
+        ImportReport report = expenseService.uploadExpensesFromCSV(userId, csv("""
+                Bank Account,Date,Narrative,Debit Amount,Credit Amount,Balance,Categories,Serial
+                032000123456,01/07/2025,COFFEE SHOP,4.50,,995.50,OTHER,
+                032000123456,02/07/2025,SALARY,,2000.00,2995.50,INCOME,
+                """));
+
+        assertEquals(1, report.getInserted());
+        assertEquals(1, report.getSkipped());
+        assertEquals(0, report.getMalformed());
+    }
+
+    // Test that a resumed import skips committed lines and reports progress with each batch
+    @Test
+    void importExpenses_shouldResumeAfterCommittedLine() throws Exception {
+        Long userId = 1L;
+        when(expenseRepository.findKeysByUserIdAndDateBetween(eq(userId), any(), any())).thenReturn(List.of());
+        ImportProgressListener listener = mock(ImportProgressListener.class);
+        ImportReport previous = new ImportReport();
+        previous.setInserted(2);
+
+        ImportReport report = expenseService.importExpenses(userId, new ByteArrayInputStream("""
+                Date,Amount,Title
+                1/07/2025,-10.00,Coffee
+                2/07/2025,-20.50,Groceries
+                3/07/2025,-5,Bus
+                """.getBytes(StandardCharsets.UTF_8)), null, previous, 3, listener);
+
+        assertEquals(3, report.getInserted());
+        verify(expenseJdbcRepository).batchInsert(eq(userId), argThat(batch -> batch.size() == 1));
+        verify(listener).batchCommitted(report, 4);
+    }
+
+    // Test that a selected profile sets the column layout and date order
+    @Test
+    void uploadExpensesFromCSV_shouldUseSelectedProfile() {
+        Long userId = 1L;
+        when(expenseRepository.findKeysByUserIdAndDateBetween(eq(userId), any(), any())).thenReturn(List.of());
+
+        ImportReport report = expenseService.uploadExpensesFromCSV(userId, csv("""
+                07/02/2025,07/03/2025,GROCER,Groceries,Sale,-42.10,
+                07/05/2025,07/05/2025,REFUND,Shopping,Return,10.00,
+                """), CsvProfile.CHASE);
+
+        assertEquals(1, report.getInserted());
+        assertEquals(1, report.getSkipped());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Expense>> captor = ArgumentCaptor.forClass(List.class);
+        verify(expenseJdbcRepository).batchInsert(eq(userId), captor.capture());
+        assertEquals(LocalDate.of(2025, 7, 2), captor.getValue().get(0).getDate());
+        assertEquals("GROCER", captor.getValue().get(0).getTitle());
+    }
+
+    // Test that a selected profile only skips its own header, an unparseable first row is reported as malformed
+    @Test
+    void uploadExpensesFromCSV_shouldReportBadFirstRowWithSelectedProfile() {
+        Long userId = 1L;
+        when(expenseRepository.findKeysByUserIdAndDateBetween(eq(userId), any(), any())).thenReturn(List.of());
+
+        ImportReport withoutHeader = expenseService.uploadExpensesFromCSV(userId, csv("""
+                31/02/2025,-10.00,Coffee,990.00
+                01/07/2025,-4.50,Bus,985.50
+                """), CsvProfile.COMMBANK);
+        ImportReport withHeader = expenseService.uploadExpensesFromCSV(userId, csv("""
+                Date,Amount,Title
+                1/07/2025,12.00,Lunch
+                """), CsvProfile.DEFAULT);
+
+        assertEquals(1, withoutHeader.getInserted());
+        assertEquals(List.of(1), withoutHeader.getMalformedLines());
+        assertEquals(1, withHeader.getInserted());
+        assertEquals(0, withHeader.getMalformed());
+    }
+
+    // Test that a full page yields a cursor pointing at its last row and the next page queries past it
+    @Test
+    void getExpensePage_shouldReturnCursorWhenMoreRowsExist() {
+        authenticate(1L);
+        ExpenseResponse newer = new ExpenseResponse(12L, "Dinner", new BigDecimal("30.00"), ExpenseCategory.FOOD, LocalDate.of(2025, 7, 2));
+        ExpenseResponse older = new ExpenseResponse(7L, "Train", new BigDecimal("4.20"), ExpenseCategory.TRANSPORT, LocalDate.of(2025, 7, 1));
+        when(expenseRepository.findPageByUserId(eq(1L), any(), eq(LocalDate.of(10000, 1, 1)), eq(0L), eq(Limit.of(2))))
+                .thenReturn(List.of(newer, older));
+
+        ExpensePage page = expenseService.getExpensePage(null, null, null, null, 1);
+
+        assertEquals(List.of(newer), page.getItems());
+        ExpenseCursor cursor = ExpenseCursor.decode(page.getNextCursor());
+        assertEquals(new ExpenseCursor(LocalDate.of(2025, 7, 2), 12L), cursor);
+
+        when(expenseRepository.findPageByUserId(eq(1L), any(), eq(cursor.date()), eq(cursor.id()), eq(Limit.of(2))))
+                .thenReturn(List.of(older));
+
+        ExpensePage next = expenseService.getExpensePage(null, null, null, page.getNextCursor(), 1);
+        assertEquals(List.of(older), next.getItems());
+        assertNull(next.getNextCursor());
+    }
+
+    @Test
+    void getExpensePage_shouldRejectInvalidCursor() {
+        authenticate(1L);
+        assertThrows(IllegalArgumentException.class,
+                () -> expenseService.getExpensePage(null, null, null, "not-a-cursor", 10));
+    }
+
+    // Test that a cursor from outside the requested date range is rejected instead of ignored
+    @Test
+    void getExpensePage_shouldRejectCursorOutsideDateRange() {
+        authenticate(1L);
+        LocalDate from = LocalDate.of(2025, 7, 1);
+        LocalDate to = LocalDate.of(2025, 7, 31);
+        String later = new ExpenseCursor(LocalDate.of(2025, 8, 1), 5L).encode();
+        String earlier = new ExpenseCursor(LocalDate.of(2025, 6, 30), 5L).encode();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> expenseService.getExpensePage(null, from, to, later, 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> expenseService.getExpensePage(null, from, to, earlier, 10));
+        verifyNoInteractions(expenseRepository);
+    }
+
+    // Test that whole month ranges are answered from the rollups without scanning expenses
+    @Test
+    void getSpendingSummary_shouldReadRollupsForWholeMonths() {
+        authenticate(1L);
+        List<SpendingTotal> totals = List.of(
+                new SpendingTotal(ExpenseCategory.FOOD, 2025, 7, new BigDecimal("412.35"), 23L));
+        when(rollupService.getTotals(1L, YearMonth.of(2025, 6), YearMonth.of(2025, 7), true, true)).thenReturn(totals);
+
+        assertEquals(totals, expenseService.getSpendingSummary(
+                LocalDate.of(2025, 6, 1), LocalDate.of(2025, 7, 31), true, true));
+        verifyNoInteractions(expenseRepository);
+    }
+
+    // Test that partial month ranges fall back to the GROUP BY query over the expenses
+    @Test
+    void getSpendingSummary_shouldAggregateExpensesForPartialMonths() {
+        authenticate(1L);
+        LocalDate from = LocalDate.of(2025, 6, 15);
+        LocalDate to = LocalDate.of(2025, 7, 31);
+        List<SpendingTotal> totals = List.of(
+                new SpendingTotal(ExpenseCategory.FOOD, 2025, 7, new BigDecimal("412.35"), 23L));
+        when(expenseRepository.sumByMonthAndCategory(1L, from, to)).thenReturn(totals);
+
+        assertEquals(totals, expenseService.getSpendingSummary(from, to, true, true));
+        verifyNoInteractions(rollupService);
+    }
+
+    // Test that a category change moves the expense between rollups
+    @Test
+    void updateCategory_shouldMoveExpenseBetweenRollups() {
+        LocalDate date = LocalDate.of(2025, 7, 2);
+        Expense expense = Expense.builder().id(5L).title("Dinner").amount(new BigDecimal("18.00"))
+                .category(ExpenseCategory.NA).date(date).build();
+        when(expenseRepository.findByIdAndUserId(5L, 1L)).thenReturn(Optional.of(expense));
+
+        expenseService.updateCategory(5L, 1L, "FOOD");
+
+        assertEquals(ExpenseCategory.FOOD, expense.getCategory());
+        verify(rollupService).add(1L, date, ExpenseCategory.NA, new BigDecimal("-18.00"), -1);
+        verify(rollupService).add(1L, date, ExpenseCategory.FOOD, new BigDecimal("18.00"), 1);
+        verify(dataVersionService).bump(1L);
+    }
+
+    private void stubRules(CategoryRule... rules) {
+        when(categoryRuleRepository.findByUserIdOrderById(1L))
+                .thenReturn(List.of(rules).stream().filter(rule -> rule.getUserId() != null).toList());
+        when(categoryRuleRepository.findByUserIdIsNullOrderById())
+                .thenReturn(List.of(rules).stream().filter(rule -> rule.getUserId() == null).toList());
+    }
+
+    private static CategoryRule rule(Long userId, String keyword, ExpenseCategory category) {
+        return CategoryRule.builder().userId(userId).keyword(keyword).category(category).build();
+    }
+
+    // Test that imported rows get the category of the matching rule, the user's rule winning over a global one
+    @Test
+    void uploadExpensesFromCSV_shouldCategoriseRowsByRules() {
+        stubRules(rule(null, "uber", ExpenseCategory.TRANSPORT), rule(1L, "uber", ExpenseCategory.FOOD),
+                rule(null, "netflix", ExpenseCategory.ENTERTAINMENT));
+        when(expenseRepository.findKeysByUserIdAndDateBetween(eq(1L), any(), any())).thenReturn(List.of());
+
+        expenseService.uploadExpensesFromCSV(1L, csv("""
+                1/07/2025,-10.00,UBER *TRIP
+                2/07/2025,-20.50,Netflix.com Sydney
+                3/07/2025,-5,Tuberculosis test
+                """));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Expense>> captor = ArgumentCaptor.forClass(List.class);
+        verify(expenseJdbcRepository, times(2)).batchInsert(eq(1L), captor.capture());
+        List<ExpenseCategory> categories = captor.getAllValues().stream().flatMap(List::stream)
+                .map(Expense::getCategory).toList();
+        assertEquals(List.of(ExpenseCategory.FOOD, ExpenseCategory.ENTERTAINMENT, ExpenseCategory.NA), categories);
+    }
+
+    // Test that re-categorisation pages through the expenses and only moves rows the update applied to
+    @Test
+    void recategoriseExpenses_shouldMoveMatchedExpensesBetweenRollups() {
+        stubRules(rule(1L, "coffee", ExpenseCategory.FOOD), rule(null, "bus", ExpenseCategory.TRANSPORT));
+        LocalDate date = LocalDate.of(2025, 7, 2);
+        ExpenseResponse coffee = new ExpenseResponse(9L, "Coffee", new BigDecimal("4.50"), ExpenseCategory.NA, date);
+        ExpenseResponse bus = new ExpenseResponse(8L, "Bus ticket", new BigDecimal("3.00"), ExpenseCategory.NA, date);
+        ExpenseResponse rent = new ExpenseResponse(7L, "Rent", new BigDecimal("500.00"), ExpenseCategory.NA, date);
+        when(expenseRepository.findPageByUserIdAndCategory(eq(1L), eq(ExpenseCategory.NA), any(), any(), any(), any()))
+                .thenReturn(List.of(coffee, bus), List.of(rent));
+        // The bus ticket was categorised by the user in the meantime
+        when(expenseJdbcRepository.batchUpdateCategory(eq(1L), anyList())).thenReturn(new int[]{1, 0});
+
+        CategorisationReport report = expenseService.recategoriseExpenses(1L, true);
+
+        assertEquals(new CategorisationReport(3, 1), report);
+        verify(expenseRepository).findPageByUserIdAndCategory(1L, ExpenseCategory.NA, LocalDate.of(1, 1, 1),
+                date, 8L, Limit.of(2));
+        verify(rollupService).moveAll(1L, List.of(
+                new CategoryChange(9L, date, new BigDecimal("4.50"), ExpenseCategory.NA, ExpenseCategory.FOOD)));
+        verify(dataVersionService, times(1)).bump(1L);
+    }
+
+    @Test
+    void getSpendingSummary_shouldRejectInvertedRange() {
+        authenticate(1L);
+        assertThrows(IllegalArgumentException.class, () -> expenseService.getSpendingSummary(
+                LocalDate.of(2025, 8, 1), LocalDate.of(2025, 7, 1), true, false));
+    }
+
+    // Test that small accounts are wiped with one bulk statement
+    @Test
+    void deleteAllExpenses_shouldBulkDeleteSmallAccounts() {
+        authenticate(1L);
+        when(expenseRepository.countByUserId(1L)).thenReturn(1000L);
+
+        assertTrue(expenseService.deleteAllExpenses());
+
+        verify(expenseRepository).deleteAllByUserId(1L);
+        verify(rollupService).deleteAll(1L);
+        verifyNoInteractions(expensePurgeService);
+    }
+
+    // Test that large accounts are handed to the chunked background purge
+    @Test
+    void deleteAllExpenses_shouldPurgeLargeAccountsInBackground() {
+        authenticate(1L);
+        when(expenseRepository.countByUserId(1L)).thenReturn(1001L);
+
+        assertFalse(expenseService.deleteAllExpenses());
+
+        verify(expensePurgeService).purgeAllExpenses(1L);
+        verify(expenseRepository, never()).deleteAllByUserId(any());
+    }
+
+    private static void authenticate(Long userId) {
+        User user = User.withId(userId);
+        user.setRole(Role.USER);
+        CustomUserDetails userDetails = new CustomUserDetails(user);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities()));
+    }
+
+    @AfterEach
+    void clearSecurityContext() {
+        SecurityContextHolder.clearContext();
+    }
 }
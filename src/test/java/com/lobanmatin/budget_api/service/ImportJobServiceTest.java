@@ -0,0 +1,199 @@
+package com.lobanmatin.budget_api.service;
+
+import com.lobanmatin.budget_api.dto.ImportReport;
+import com.lobanmatin.budget_api.exception.ResourceNotFoundException;
+import com.lobanmatin.budget_api.model.ImportJob;
+import com.lobanmatin.budget_api.model.ImportJobFile;
+import com.lobanmatin.budget_api.model.ImportJobStatus;
+import com.lobanmatin.budget_api.repository.ImportJobFileRepository;
+import com.lobanmatin.budget_api.repository.ImportJobRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ImportJobServiceTest {
+
+    @Mock
+    private ImportJobRepository importJobRepository;
+
+    @Mock
+    private ImportJobFileRepository importJobFileRepository;
+
+    @Mock
+    private ExpenseService expenseService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ImportJobService importJobService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        importJobService = new ImportJobService(importJobRepository, importJobFileRepository, expenseService,
+                new TransactionTemplate(transactionManager), meterRegistry, 1, 1, 60000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        importJobService.shutdown();
+    }
+
+    private void stubClaimedJob(UUID jobId, ImportJob job) {
+        when(importJobRepository.claim(eq(jobId), any(), any())).thenReturn(1);
+        when(importJobRepository.findById(jobId)).thenReturn(Optional.of(job));
+        when(importJobFileRepository.findById(jobId))
+                .thenReturn(Optional.of(new ImportJobFile(jobId, "1/07/2025,-10.00,Coffee\n".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    // Test that a restarted job continues after its last committed line with the counts it had reached
+    @Test
+    void runJob_shouldResumeFromCommittedProgress() throws IOException {
+        UUID jobId = UUID.randomUUID();
+        stubClaimedJob(jobId, ImportJob.builder()
+                .id(jobId).userId(1L).status(ImportJobStatus.RUNNING).rowsProcessed(3).inserted(2).malformed(1)
+                .createdAt(Instant.now()).build());
+        when(importJobRepository.finish(eq(jobId), any(), any(), any(), any())).thenReturn(1);
+
+        importJobService.runJob(jobId);
+
+        ArgumentCaptor<ImportReport> report = ArgumentCaptor.forClass(ImportReport.class);
+        verify(expenseService).importExpenses(eq(1L), any(), isNull(), report.capture(), eq(3), any());
+        assertEquals(2, report.getValue().getInserted());
+        assertEquals(1, report.getValue().getMalformed());
+        verify(importJobRepository).finish(eq(jobId), any(), eq(ImportJobStatus.COMPLETED), isNull(), any());
+        verify(importJobFileRepository).deleteById(jobId);
+    }
+
+    // Test that only rows handled after a restart are added to the row counters
+    @Test
+    void runJob_shouldCountRowsOfCommittedBatches() throws IOException {
+        UUID jobId = UUID.randomUUID();
+        stubClaimedJob(jobId, ImportJob.builder()
+                .id(jobId).userId(1L).status(ImportJobStatus.RUNNING).rowsProcessed(3).inserted(2)
+                .createdAt(Instant.now()).build());
+        when(importJobRepository.updateProgress(eq(jobId), any(), anyInt(), anyInt(), anyInt(), anyInt(), anyInt()))
+                .thenReturn(1);
+        when(expenseService.importExpenses(any(), any(), any(), any(), anyInt(), any())).thenAnswer(invocation -> {
+            ImportReport report = invocation.getArgument(3);
+            report.recordInserted(5);
+            report.recordMalformed(9);
+            ImportProgressListener listener = invocation.getArgument(5);
+            listener.batchCommitted(report, 10);
+            return report;
+        });
+
+        importJobService.runJob(jobId);
+
+        assertEquals(5.0, meterRegistry.get("expense.import.rows").tag("outcome", "inserted").counter().count());
+        assertEquals(1.0, meterRegistry.get("expense.import.rows").tag("outcome", "malformed").counter().count());
+        verify(importJobRepository).updateProgress(eq(jobId), any(), eq(10), eq(7), eq(0), eq(1), eq(0));
+    }
+
+    // Test that a job cancelled while queued is never started
+    @Test
+    void runJob_shouldSkipJobCancelledInQueue() throws IOException {
+        UUID jobId = UUID.randomUUID();
+        when(importJobRepository.claim(eq(jobId), any(), any())).thenReturn(0);
+
+        importJobService.runJob(jobId);
+
+        verify(expenseService, never()).importExpenses(any(), any(), any(), any(), anyInt(), any());
+        verify(importJobRepository, never()).finish(any(), any(), any(), any(), any());
+    }
+
+    // Test that a failing import is recorded on the job instead of being lost on the worker thread
+    @Test
+    void runJob_shouldRecordFailure() throws IOException {
+        UUID jobId = UUID.randomUUID();
+        stubClaimedJob(jobId, ImportJob.builder()
+                .id(jobId).userId(1L).status(ImportJobStatus.RUNNING).createdAt(Instant.now()).build());
+        when(expenseService.importExpenses(any(), any(), any(), any(), anyInt(), any()))
+                .thenThrow(new IOException("Stream closed"));
+
+        importJobService.runJob(jobId);
+
+        verify(importJobRepository).finish(eq(jobId), any(), eq(ImportJobStatus.FAILED), eq("Stream closed"), any());
+    }
+
+    // Test that a batch fails once another instance has taken the job over, and the job's file is left to it
+    @Test
+    void runJob_shouldStopWhenJobWasTakenOver() throws IOException {
+        UUID jobId = UUID.randomUUID();
+        stubClaimedJob(jobId, ImportJob.builder()
+                .id(jobId).userId(1L).status(ImportJobStatus.RUNNING).createdAt(Instant.now()).build());
+        when(importJobRepository.updateProgress(eq(jobId), any(), anyInt(), anyInt(), anyInt(), anyInt(), anyInt()))
+                .thenReturn(0);
+        when(expenseService.importExpenses(any(), any(), any(), any(), anyInt(), any())).thenAnswer(invocation -> {
+            ImportProgressListener listener = invocation.getArgument(5);
+            listener.batchCommitted(invocation.getArgument(3), 10);
+            return invocation.getArgument(3);
+        });
+
+        importJobService.runJob(jobId);
+
+        verify(importJobRepository).finish(eq(jobId), any(), eq(ImportJobStatus.FAILED), any(), any());
+        verify(importJobFileRepository, never()).deleteById(any());
+    }
+
+    // Test that jobs with an expired lease are taken over by this instance and queued
+    @Test
+    void resumeJobs_shouldTakeOverExpiredJobs() {
+        UUID jobId = UUID.randomUUID();
+        ImportJob job = ImportJob.builder()
+                .id(jobId).userId(1L).status(ImportJobStatus.RUNNING).owner("stopped-instance")
+                .leaseExpiresAt(Instant.now().minusSeconds(5)).createdAt(Instant.now()).build();
+        when(importJobRepository.lockExpired(any(), any())).thenReturn(List.of(job));
+
+        importJobService.resumeJobs();
+
+        assertEquals(ImportJobStatus.QUEUED, job.getStatus());
+        assertNotEquals("stopped-instance", job.getOwner());
+        assertTrue(job.getLeaseExpiresAt().isAfter(Instant.now()));
+        verify(importJobRepository, timeout(5000)).claim(eq(jobId), eq(job.getOwner()), any());
+    }
+
+    // Test that a finished job cannot be cancelled
+    @Test
+    void cancel_shouldRejectFinishedJob() {
+        UUID jobId = UUID.randomUUID();
+        when(importJobRepository.cancel(eq(jobId), eq(1L), any())).thenReturn(0);
+        when(importJobRepository.findByIdAndUserId(jobId, 1L)).thenReturn(Optional.of(ImportJob.builder()
+                .id(jobId).userId(1L).status(ImportJobStatus.COMPLETED).createdAt(Instant.now()).build()));
+
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> importJobService.cancel(jobId, 1L));
+
+        assertEquals("Import job has already finished", ex.getMessage());
+        verify(importJobFileRepository, never()).deleteById(any());
+    }
+
+    // Test that jobs of other users are reported as missing
+    @Test
+    void getJob_shouldHideOtherUsersJobs() {
+        UUID jobId = UUID.randomUUID();
+        when(importJobRepository.findByIdAndUserId(jobId, 2L)).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> importJobService.getJob(jobId, 2L));
+    }
+}
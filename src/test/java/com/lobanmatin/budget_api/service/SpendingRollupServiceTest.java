@@ -0,0 +1,51 @@
+package com.lobanmatin.budget_api.service;
+
+import com.lobanmatin.budget_api.repository.SpendingRollupRepository;
+import com.lobanmatin.budget_api.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SpendingRollupServiceTest {
+
+    @Mock
+    private SpendingRollupRepository rollupRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private DataVersionService dataVersionService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    // Test that every user's rebuild takes the data version lock before replacing their rollups, in its own transaction
+    @Test
+    void rebuildAll_shouldLockEachUserBeforeRebuilding() {
+        SpendingRollupService rollupService = new SpendingRollupService(rollupRepository, userRepository,
+                dataVersionService, new TransactionTemplate(transactionManager));
+        when(userRepository.findIdsAfter(eq(0L), any())).thenReturn(List.of(1L, 2L));
+
+        rollupService.rebuildAll();
+
+        InOrder inOrder = inOrder(dataVersionService, rollupRepository);
+        for (Long userId : List.of(1L, 2L)) {
+            inOrder.verify(dataVersionService).bump(userId);
+            inOrder.verify(rollupRepository).deleteAllByUserId(userId);
+            inOrder.verify(rollupRepository).insertRollupsFromExpenses(userId);
+        }
+        verify(transactionManager, times(2)).commit(any());
+    }
+}
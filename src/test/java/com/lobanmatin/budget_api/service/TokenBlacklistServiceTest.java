@@ -0,0 +1,93 @@
+package com.lobanmatin.budget_api.service;
+
+import com.lobanmatin.budget_api.model.Role;
+import com.lobanmatin.budget_api.model.User;
+import com.lobanmatin.budget_api.security.CustomUserDetails;
+import com.lobanmatin.budget_api.security.JwtUtil;
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBlacklistServiceTest {
+
+    private JwtUtil jwtUtil;
+    private InMemoryTokenBlacklistStore store;
+    private TokenBlacklistService tokenBlacklistService;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "SECRET_KEY",
+                Base64.getEncoder().encodeToString("0123456789abcdef0123456789abcdef".getBytes()));
+        ReflectionTestUtils.setField(jwtUtil, "EXPIRATION_TIME", 60_000L);
+        ReflectionTestUtils.setField(jwtUtil, "CACHE_MAX_SIZE", 100);
+        ReflectionTestUtils.invokeMethod(jwtUtil, "init");
+
+        store = new InMemoryTokenBlacklistStore();
+        tokenBlacklistService = new TokenBlacklistService(store, jwtUtil, 1000, 60_000);
+        tokenBlacklistService.refresh();
+    }
+
+    private String token(Long userId) {
+        User user = new User("user" + userId + "@example.com", "hashed-password", Role.USER);
+        user.setId(userId);
+        return jwtUtil.generateToken(new HashMap<>(), new CustomUserDetails(user));
+    }
+
+    private Claims claims(String token) {
+        return jwtUtil.validateAndGetClaims(token).orElseThrow();
+    }
+
+    // Test that only the logged out token is rejected and it is stored by its jti
+    @Test
+    void blacklist_shouldRejectOnlyLoggedOutToken() {
+        String loggedOut = token(1L);
+        String active = token(2L);
+
+        tokenBlacklistService.blacklist(loggedOut);
+
+        assertTrue(tokenBlacklistService.isBlacklisted(claims(loggedOut), loggedOut));
+        assertFalse(tokenBlacklistService.isBlacklisted(claims(active), active));
+        assertTrue(store.contains(claims(loggedOut).getId(), Instant.now()));
+    }
+
+    // Test that a token revoked in the store by another replica is rejected after the next refresh
+    @Test
+    void refresh_shouldPickUpTokensRevokedElsewhere() {
+        String loggedOut = token(1L);
+        store.add(claims(loggedOut).getId(), Instant.now().plusSeconds(60));
+
+        tokenBlacklistService.refresh();
+
+        assertTrue(tokenBlacklistService.isBlacklisted(claims(loggedOut), loggedOut));
+    }
+
+    // Test that a rebuild keeps revoked tokens and evicts the ones past their expiry
+    @Test
+    void refresh_shouldEvictExpiredTokens() {
+        tokenBlacklistService = new TokenBlacklistService(store, jwtUtil, 1000, 0);
+        tokenBlacklistService.refresh();
+        String loggedOut = token(1L);
+        tokenBlacklistService.blacklist(loggedOut);
+        store.add("expired-token", Instant.now().minusSeconds(1));
+
+        tokenBlacklistService.refresh();
+
+        assertTrue(tokenBlacklistService.isBlacklisted(claims(loggedOut), loggedOut));
+        assertEquals(1, tokenBlacklistService.size());
+    }
+
+    @Test
+    void blacklist_shouldIgnoreInvalidToken() {
+        tokenBlacklistService.blacklist("not-a-token");
+
+        assertEquals(0, tokenBlacklistService.size());
+    }
+}
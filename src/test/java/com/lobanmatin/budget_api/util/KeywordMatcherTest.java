@@ -0,0 +1,68 @@
+package com.lobanmatin.budget_api.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeywordMatcherTest {
+
+    // Test that keywords are found case insensitively and only as whole words
+    @Test
+    void find_shouldMatchWholeWordsIgnoringCase() {
+        KeywordMatcher<String> matcher = KeywordMatcher.<String>builder()
+                .add("uber", 0, "transport")
+                .add("bp", 0, "fuel")
+                .build();
+
+        assertEquals("transport", matcher.find("UBER *TRIP HELP.UBER.COM"));
+        assertEquals("fuel", matcher.find("BP-Connect 1234"));
+        assertNull(matcher.find("Tuberculosis clinic"));
+        assertNull(matcher.find("BPAY payment"));
+        assertNull(matcher.find(""));
+    }
+
+    // Test that priority wins first, then the longest keyword, then the first keyword in the text
+    @Test
+    void find_shouldPreferPriorityThenLengthThenPosition() {
+        KeywordMatcher<String> matcher = KeywordMatcher.<String>builder()
+                .add("uber", 0, "transport")
+                .add("uber eats", 0, "food")
+                .add("pie", 0, "bakery")
+                .add("tea", 0, "drinks")
+                .add("rent", 1, "housing")
+                .build();
+
+        assertEquals("food", matcher.find("Uber Eats order"));
+        assertEquals("housing", matcher.find("Uber Eats rent split"));
+        assertEquals("drinks", matcher.find("tea and pie"));
+        assertEquals("bakery", matcher.find("pie and tea"));
+    }
+
+    // Test that a keyword ending inside a longer one is found through the failure links
+    @Test
+    void find_shouldFindKeywordsOverlappingLongerOnes() {
+        KeywordMatcher<String> matcher = KeywordMatcher.<String>builder()
+                .add("shell", 0, "fuel")
+                .add("he shop", 0, "shop")
+                .add("she", 0, "other")
+                .build();
+
+        assertEquals("shop", matcher.find("ti he shop"));
+        assertEquals("fuel", matcher.find("coles shell"));
+        assertEquals("other", matcher.find("she sells"));
+    }
+
+    // Test that a repeated keyword keeps the value with the higher priority
+    @Test
+    void add_shouldKeepHigherPriorityForRepeatedKeyword() {
+        KeywordMatcher<String> matcher = KeywordMatcher.<String>builder()
+                .add("Netflix", 0, "global")
+                .add(" netflix ", 1, "user")
+                .add("NETFLIX", 0, "other")
+                .build();
+
+        assertEquals(1, matcher.size());
+        assertEquals("user", matcher.find("netflix.com"));
+        assertThrows(IllegalArgumentException.class, () -> KeywordMatcher.<String>builder().add("  ", 0, "x"));
+    }
+}
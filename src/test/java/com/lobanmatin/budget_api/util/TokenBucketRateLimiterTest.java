@@ -0,0 +1,91 @@
+package com.lobanmatin.budget_api.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketRateLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong(Long.MAX_VALUE - TimeUnit.SECONDS.toNanos(5));
+
+    // Test that a full bucket allows a burst of its capacity and then reports the wait for the next token
+    @Test
+    void tryAcquire_shouldAllowBurstThenReportWait() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(3, 2, 10, clock::get);
+
+        assertEquals(0, limiter.tryAcquire("a"));
+        assertEquals(0, limiter.tryAcquire("a"));
+        assertEquals(0, limiter.tryAcquire("a"));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), limiter.tryAcquire("a"));
+
+        // Other keys have buckets of their own
+        assertEquals(0, limiter.tryAcquire("b"));
+    }
+
+    // Test that tokens come back at the refill rate, across a nanoTime overflow
+    @Test
+    void tryAcquire_shouldRefillOverTime() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(2, 1, 10, clock::get);
+        limiter.tryAcquire("a");
+        limiter.tryAcquire("a");
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1500));
+        assertEquals(0, limiter.tryAcquire("a"));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), limiter.tryAcquire("a"));
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        assertEquals(0, limiter.tryAcquire("a"));
+        assertEquals(0, limiter.tryAcquire("a"));
+        assertTrue(limiter.tryAcquire("a") > 0);
+    }
+
+    // Test that only refilled buckets are evicted, so eviction never hands a throttled client a fresh bucket
+    @Test
+    void evictIdle_shouldDropOnlyFullBuckets() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(2, 1, 10, clock::get);
+        limiter.tryAcquire("idle");
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        limiter.tryAcquire("busy");
+        limiter.tryAcquire("busy");
+
+        limiter.evictIdle();
+
+        assertEquals(1, limiter.size());
+        assertTrue(limiter.tryAcquire("busy") > 0);
+    }
+
+    // Test that the number of buckets stays bounded however many keys are seen
+    @Test
+    void tryAcquire_shouldBoundBucketCount() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(5, 1, 100, clock::get);
+
+        for (int i = 0; i < 1000; i++) {
+            limiter.tryAcquire("client-" + i);
+        }
+
+        assertTrue(limiter.size() <= 100);
+    }
+
+    // Test that new keys never push out throttled buckets, they share the overflow bucket until a bucket refills
+    @Test
+    void tryAcquire_shouldKeepThrottledBucketsWhenFull() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1, 1, 2, clock::get);
+        limiter.tryAcquire("a");
+        limiter.tryAcquire("b");
+
+        assertEquals(0, limiter.tryAcquire("new-1"));
+        assertTrue(limiter.tryAcquire("new-2") > 0);
+        assertEquals(2, limiter.size());
+        assertTrue(limiter.tryAcquire("a") > 0);
+        assertTrue(limiter.tryAcquire("b") > 0);
+
+        // Once the buckets have refilled they are dropped for new keys
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        assertEquals(0, limiter.tryAcquire("new-3"));
+        assertEquals(0, limiter.tryAcquire("new-4"));
+        assertEquals(2, limiter.size());
+    }
+}